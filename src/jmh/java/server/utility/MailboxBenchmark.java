@@ -0,0 +1,137 @@
+package server.utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MpscMailbox} with the {@link LinkedBlockingQueue} that game sessions used as
+ * their inbox before it.
+ * <p>
+ * The {@code *Throughput} groups have three producers offering to one consumer, as players and
+ * timers do to a session. Producers hold off while {@value #MAX_BACKLOG} messages are waiting so
+ * an unbounded queue cannot grow for the whole iteration. The {@code *PingPong} groups hand one
+ * message back and forth between two threads, so every message finds the other side parked and
+ * the {@link ConsumerParker} handshake is measured on each exchange.
+ * <p>
+ * Consumers wait with a timeout rather than {@code take()}, and producers stop holding off once
+ * the iteration ends, so a thread whose other side has stopped returns instead of hanging the run.
+ * Run with {@code ./gradlew jmh}, passing JMH options as {@code -PjmhArgs="..."}.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MailboxBenchmark {
+
+    /** The most messages waiting before producers hold off. */
+    private static final int MAX_BACKLOG = 1024;
+
+    /** How long a consumer waits before giving up on the other side of its group. */
+    private static final long WAIT_MILLIS = 10;
+
+    /** Every benchmark sends the same message, so nothing is allocated per message. */
+    private static final Object MESSAGE = new Object();
+
+    private MpscMailbox<Object> mailbox;
+    private MpscMailbox<Object> reply;
+    private LinkedBlockingQueue<Object> queue;
+    private LinkedBlockingQueue<Object> replyQueue;
+
+    /**
+     * Starts every iteration with empty queues, so nothing left behind by the last one is counted
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        mailbox = new MpscMailbox<>();
+        reply = new MpscMailbox<>();
+        queue = new LinkedBlockingQueue<>();
+        replyQueue = new LinkedBlockingQueue<>();
+    }
+
+    @Benchmark
+    @Group("mpscThroughput")
+    @GroupThreads(3)
+    public void mpscOffer(Control control) {
+        while (mailbox.size() >= MAX_BACKLOG && !control.stopMeasurement) {
+            Thread.onSpinWait();
+        }
+        mailbox.offer(MESSAGE);
+    }
+
+    @Benchmark
+    @Group("mpscThroughput")
+    @GroupThreads(1)
+    public Object mpscPoll() throws InterruptedException {
+        return mailbox.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("blockingQueueThroughput")
+    @GroupThreads(3)
+    public void blockingQueueOffer(Control control) {
+        while (queue.size() >= MAX_BACKLOG && !control.stopMeasurement) {
+            Thread.onSpinWait();
+        }
+        queue.offer(MESSAGE);
+    }
+
+    @Benchmark
+    @Group("blockingQueueThroughput")
+    @GroupThreads(1)
+    public Object blockingQueuePoll() throws InterruptedException {
+        return queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("mpscPingPong")
+    @GroupThreads(1)
+    public Object mpscPing() throws InterruptedException {
+        mailbox.offer(MESSAGE);
+        return reply.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("mpscPingPong")
+    @GroupThreads(1)
+    public void mpscPong() throws InterruptedException {
+        Object message = mailbox.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        if (message != null) {
+            reply.offer(message);
+        }
+    }
+
+    @Benchmark
+    @Group("blockingQueuePingPong")
+    @GroupThreads(1)
+    public Object blockingQueuePing() throws InterruptedException {
+        queue.offer(MESSAGE);
+        return replyQueue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("blockingQueuePingPong")
+    @GroupThreads(1)
+    public void blockingQueuePong() throws InterruptedException {
+        Object message = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        if (message != null) {
+            replyQueue.offer(message);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package server.game;
 
 import server.player.PlayerHandler;
+import server.utility.PackedMove;
 import server.utility.ThreadMessage;
 import server.utility.MessageType;
 
@@ -295,6 +296,60 @@ public abstract class AbstractGameController<P extends GamePiece> implements Gam
      */
     public abstract int getBoardSize();
 
+    /**
+     * Processes a move whose data was built in-process as an {@code Integer} or {@code int[]}.
+     * Packs the data and processes it as a {@link PackedMove}. A coordinate too large to be
+     * packed is checked against the board first, so it gets the same error as any other
+     * coordinate off the board.
+     * 
+     * @param player The player making the move
+     * @param moveData An Integer column or an int array of coordinates
+     * @return true if the move was valid and processed successfully
+     * @throws IllegalArgumentException if the move data is not an integer or an int array, or is invalid
+     * @throws IllegalStateException if the game is over or paused
+     */
+    @Override
+    public boolean processMove(PlayerHandler player, Object moveData) {
+        int packedMove = PackedMove.fromData(moveData);
+        if (!PackedMove.isValid(packedMove)) {
+            validateGameState();
+            if (!validatePlayer(player)) {
+                return false;
+            }
+            if (moveData instanceof Integer coordinate) {
+                validateCoordinate(coordinate);
+            } else {
+                for (int coordinate : (int[]) moveData) {
+                    validateCoordinate(coordinate);
+                }
+            }
+        }
+        return processMove(player, packedMove);
+    }
+
+    /**
+     * Checks that a single move coordinate is on the board.
+     * 
+     * @param coordinate The coordinate to check
+     * @throws IllegalArgumentException if the coordinate is off the board
+     */
+    protected abstract void validateCoordinate(int coordinate);
+
+    /**
+     * Checks that a packed move has the number of coordinates the game expects.
+     * 
+     * @param packedMove The move to check
+     * @param coordinates The number of coordinates a move in this game has
+     * @param layout A description of the coordinates, used in the error message
+     * @throws IllegalArgumentException if the move is invalid or has a different number of coordinates
+     */
+    protected void validateMoveShape(int packedMove, int coordinates, String layout) {
+        if (!PackedMove.isValid(packedMove) || PackedMove.count(packedMove) != coordinates) {
+            throw new IllegalArgumentException("Move data must contain exactly " + coordinates
+                    + (coordinates == 1 ? " coordinate " : " coordinates ") + layout);
+        }
+    }
+
     /**
      * Handles a message received from a player.
      * Currently only processes MOVE_MADE messages.
@@ -309,7 +364,7 @@ public abstract class AbstractGameController<P extends GamePiece> implements Gam
         }
 
         try {
-            return processMove(message.getPlayerSender(), message.getData());
+            return processMove(message.getPlayerSender(), message.getPackedMove());
         } catch (IllegalArgumentException | IllegalStateException e) {
             // Log the error
             System.err.println("Error processing move: " + e.getMessage());
@@ -1,6 +1,7 @@
 package server.game;
 
 import server.player.PlayerHandler;
+import server.utility.PackedMove;
 
 import java.util.Set;
 import java.util.HashMap;
@@ -36,8 +37,8 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
     /** Flag indicating if a multiple jump is in progress */
     private boolean isMultipleJump;
     
-    /** The last position from which a jump was made */
-    private int[] lastJumpPosition;
+    /** The square the last jump landed on, packed as [row, col] */
+    private int lastJumpPosition;
 
     /**
      * Constructs a new Checkers game controller.
@@ -52,7 +53,7 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
         }
         this.playerPieces = new HashMap<>();
         this.isMultipleJump = false;
-        this.lastJumpPosition = null;
+        this.lastJumpPosition = PackedMove.INVALID;
     }
 
     /**
@@ -134,10 +135,10 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
      * Validates the move and updates the game state accordingly.
      * 
      * @param player The player making the move
-     * @param moveData The move data as an int[4] array [fromRow, fromCol, toRow, toCol]
+     * @param packedMove The move packed as [fromRow, fromCol, toRow, toCol]
      * @return true if the move was valid and processed successfully
      * @throws IllegalArgumentException if:
-     *         - The move data is not an int array
+     *         - The move does not have exactly 4 coordinates
      *         - The move coordinates are invalid
      *         - The move is not legal
      *         - The player is not part of this game
@@ -146,7 +147,7 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
      *         - The game is paused
      */
     @Override
-    public boolean processMove(PlayerHandler player, Object moveData) {
+    public boolean processMove(PlayerHandler player, int packedMove) {
         // Validate game state and player
         validateGameState();
         if (!validatePlayer(player)) {
@@ -154,22 +155,18 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
         }
 
         // Validate move data
-        if (!(moveData instanceof int[] move)) {
-            throw new IllegalArgumentException("Move data must be an int array");
-        }
-        if (move.length != 4) {
-            throw new IllegalArgumentException("Move data must contain exactly 4 elements [fromRow, fromCol, toRow, toCol]");
-        }
+        validateMoveShape(packedMove, 4, "[fromRow, fromCol, toRow, toCol]");
 
-        int fromRow = move[0];
-        int fromCol = move[1];
-        int toRow = move[2];
-        int toCol = move[3];
+        int fromRow = PackedMove.coordinate(packedMove, 0);
+        int fromCol = PackedMove.coordinate(packedMove, 1);
+        int toRow = PackedMove.coordinate(packedMove, 2);
+        int toCol = PackedMove.coordinate(packedMove, 3);
 
         // Validate move coordinates
-        if (!isValidCoordinates(fromRow, fromCol) || !isValidCoordinates(toRow, toCol)) {
-            throw new IllegalArgumentException("Move coordinates must be between 0 and " + (BOARD_SIZE - 1));
-        }
+        validateCoordinate(fromRow);
+        validateCoordinate(fromCol);
+        validateCoordinate(toRow);
+        validateCoordinate(toCol);
 
         // Validate piece ownership
         CheckersPiece piece = board[fromRow][fromCol];
@@ -179,7 +176,7 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
 
         // Check if multiple jump is in progress
         if (isMultipleJump) {
-            if (fromRow != lastJumpPosition[0] || fromCol != lastJumpPosition[1]) {
+            if (PackedMove.of(fromRow, fromCol) != lastJumpPosition) {
                 throw new IllegalArgumentException("Must continue multiple jump from last position");
             }
         }
@@ -191,10 +188,10 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
             // Check for additional jumps
             if (hasAdditionalJumps(toRow, toCol)) {
                 isMultipleJump = true;
-                lastJumpPosition = new int[]{toRow, toCol};
+                lastJumpPosition = PackedMove.of(toRow, toCol);
             } else {
                 isMultipleJump = false;
-                lastJumpPosition = null;
+                lastJumpPosition = PackedMove.INVALID;
                 switchPlayer();
             }
 
@@ -209,6 +206,19 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
         }
     }
 
+    /**
+     * Checks that a row or column index is on the board.
+     * 
+     * @param coordinate The row or column index
+     * @throws IllegalArgumentException if the coordinate is off the board
+     */
+    @Override
+    protected void validateCoordinate(int coordinate) {
+        if (coordinate < 0 || coordinate >= BOARD_SIZE) {
+            throw new IllegalArgumentException("Move coordinates must be between 0 and " + (BOARD_SIZE - 1));
+        }
+    }
+
     /**
      * Gets the current state of the game board.
      * 
@@ -234,17 +244,6 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
         return playerPieces.get(player).getSymbol();
     }
 
-    /**
-     * Checks if the given coordinates are valid for the board.
-     * 
-     * @param row The row coordinate
-     * @param col The column coordinate
-     * @return true if the coordinates are valid
-     */
-    private boolean isValidCoordinates(int row, int col) {
-        return row >= 0 && row < BOARD_SIZE && col >= 0 && col < BOARD_SIZE;
-    }
-
     /**
      * Checks if the given piece belongs to the specified player.
      * 
@@ -488,6 +487,6 @@ public class CheckersController extends AbstractGameController<CheckersPiece> {
     public void resetGame() {
         super.resetGame();
         isMultipleJump = false;
-        lastJumpPosition = null;
+        lastJumpPosition = PackedMove.INVALID;
     }
 } 
\ No newline at end of file
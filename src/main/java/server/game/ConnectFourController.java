@@ -1,6 +1,7 @@
 package server.game;
 
 import server.player.PlayerHandler;
+import server.utility.PackedMove;
 
 import java.util.Set;
 import java.util.HashMap;
@@ -109,10 +110,10 @@ public class ConnectFourController extends AbstractGameController<ConnectFourPie
      * Validates the move and updates the game state accordingly.
      * 
      * @param player The player making the move
-     * @param moveData The move data as an int representing the column index
+     * @param packedMove The move packed as [column]
      * @return true if the move was valid and processed successfully
      * @throws IllegalArgumentException if:
-     *         - The move data is not an integer
+     *         - The move does not have exactly 1 coordinate
      *         - The column index is invalid
      *         - The column is full
      *         - The player is not part of this game
@@ -121,7 +122,7 @@ public class ConnectFourController extends AbstractGameController<ConnectFourPie
      *         - The game is paused
      */
     @Override
-    public boolean processMove(PlayerHandler player, Object moveData) {
+    public boolean processMove(PlayerHandler player, int packedMove) {
         // Validate game state and player
         validateGameState();
         if (!validatePlayer(player)) {
@@ -129,12 +130,9 @@ public class ConnectFourController extends AbstractGameController<ConnectFourPie
         }
 
         // Validate move data
-        if (!(moveData instanceof Integer column)) {
-            throw new IllegalArgumentException("Move data must be an integer");
-        }
-        if (column < 0 || column >= COLS) {
-            throw new IllegalArgumentException("Column index must be between 0 and " + (COLS - 1));
-        }
+        validateMoveShape(packedMove, 1, "[column]");
+        int column = PackedMove.coordinate(packedMove, 0);
+        validateCoordinate(column);
 
         // Check if column is full
         if (board[0][column] != ConnectFourPiece.EMPTY) {
@@ -160,6 +158,19 @@ public class ConnectFourController extends AbstractGameController<ConnectFourPie
         return true;
     }
 
+    /**
+     * Checks that a column index is on the board.
+     * 
+     * @param column The column index
+     * @throws IllegalArgumentException if the column is off the board
+     */
+    @Override
+    protected void validateCoordinate(int column) {
+        if (column < 0 || column >= COLS) {
+            throw new IllegalArgumentException("Column index must be between 0 and " + (COLS - 1));
+        }
+    }
+
     /**
      * Gets the current state of the game board.
      * 
@@ -1,6 +1,7 @@
 package server.game;
 
 import server.player.PlayerHandler;
+import server.utility.PackedMove;
 import server.utility.ThreadMessage;
 
 /**
@@ -50,6 +51,18 @@ public interface GameController {
      * @throws IllegalStateException if the game is not in a valid state for moves
      */
     boolean processMove(PlayerHandler player, Object moveData);
+
+    /**
+     * Processes a move made by a player, with its coordinates packed into one int.
+     * This is the form moves arrive in from clients, so the move path allocates nothing.
+     * 
+     * @param player The player making the move
+     * @param packedMove The move's coordinates as a {@link PackedMove}
+     * @return true if the move was valid and processed successfully, false otherwise
+     * @throws IllegalArgumentException if the move has the wrong number of coordinates or they are invalid
+     * @throws IllegalStateException if the game is not in a valid state for moves
+     */
+    boolean processMove(PlayerHandler player, int packedMove);
     
     /**
      * Checks if the game has reached a terminal state (win, loss, or draw).
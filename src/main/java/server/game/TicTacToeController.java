@@ -1,6 +1,7 @@
 package server.game;
 
 import server.player.PlayerHandler;
+import server.utility.PackedMove;
 
 import java.util.Set;
 import java.util.HashMap;
@@ -130,10 +131,10 @@ public class TicTacToeController extends AbstractGameController<TicTacToePiece>
      * Validates the move and updates the game state accordingly.
      * 
      * @param player The player making the move
-     * @param moveData The move data as an int[2] array [row, col]
+     * @param packedMove The move packed as [row, col]
      * @return true if the move was valid and processed successfully
      * @throws IllegalArgumentException if:
-     *         - The move data is not an int array
+     *         - The move does not have exactly 2 coordinates
      *         - The move coordinates are invalid
      *         - The cell is already occupied
      *         - The player is not part of this game
@@ -142,7 +143,7 @@ public class TicTacToeController extends AbstractGameController<TicTacToePiece>
      *         - The game is paused
      */
     @Override
-    public boolean processMove(PlayerHandler player, Object moveData) {
+    public boolean processMove(PlayerHandler player, int packedMove) {
         // Validate game state and player
         validateGameState();
         if (!validatePlayer(player)) {
@@ -150,20 +151,14 @@ public class TicTacToeController extends AbstractGameController<TicTacToePiece>
         }
 
         // Validate move data
-        if (!(moveData instanceof int[] move)) {
-            throw new IllegalArgumentException("Move data must be an int array");
-        }
-        if (move.length != 2) {
-            throw new IllegalArgumentException("Move data must contain exactly 2 elements [row, col]");
-        }
+        validateMoveShape(packedMove, 2, "[row, col]");
 
-        int row = move[0];
-        int col = move[1];
+        int row = PackedMove.coordinate(packedMove, 0);
+        int col = PackedMove.coordinate(packedMove, 1);
 
         // Validate move coordinates
-        if (row < 0 || row >= BOARD_SIZE || col < 0 || col >= BOARD_SIZE) {
-            throw new IllegalArgumentException("Move coordinates must be between 0 and " + (BOARD_SIZE - 1));
-        }
+        validateCoordinate(row);
+        validateCoordinate(col);
 
         // Check if cell is empty
         if (!board[row][col].isEmpty()) {
@@ -186,6 +181,19 @@ public class TicTacToeController extends AbstractGameController<TicTacToePiece>
         return true;
     }
 
+    /**
+     * Checks that a row or column index is on the board.
+     * 
+     * @param coordinate The row or column index
+     * @throws IllegalArgumentException if the coordinate is off the board
+     */
+    @Override
+    protected void validateCoordinate(int coordinate) {
+        if (coordinate < 0 || coordinate >= BOARD_SIZE) {
+            throw new IllegalArgumentException("Move coordinates must be between 0 and " + (BOARD_SIZE - 1));
+        }
+    }
+
     /**
      * Checks if the last move resulted in a win.
      * Checks the row, column, and diagonals (if applicable) of the last move.
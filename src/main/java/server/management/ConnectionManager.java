@@ -0,0 +1,369 @@
+package server.management;
+
+import server.player.ClientConnection;
+import server.player.PlayerHandler;
+import server.utility.ServerConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static server.utility.ServerLogger.logError;
+import static server.utility.ServerLogger.logInfo;
+
+/**
+ * Accepts client connections and creates a PlayerHandler for each one.
+ * <p>
+ * Several acceptor threads accept in parallel. Where the platform supports
+ * {@code SO_REUSEPORT}, each acceptor binds its own listening socket to the server port and the
+ * kernel spreads incoming connections between them; otherwise the acceptors share one listening
+ * socket. Every listening socket is bound with a large, configurable backlog so that a burst of
+ * reconnects queues in the kernel instead of having its SYNs dropped.
+ * <p>
+ * Admission control runs before any PlayerHandler is built: once {@code connection.maxConnections}
+ * clients are connected, new sockets are closed straight away.
+ * <p>
+ * {@code server.frontEnd} chooses how admitted clients are served: {@code threads} gives each
+ * PlayerHandler its own virtual threads, {@code nio} hands the socket to the {@link NioFrontEnd}.
+ * <p>
+ * When {@code gateway.socketPath} is set, a co-located gateway process may also connect over a
+ * Unix domain socket at that path, skipping TCP between tiers on the same host. Each
+ * {@link GatewayLink} multiplexes many clients, and every client it opens is admitted like a
+ * direct connection. Gateway links are always served by the {@link NioFrontEnd}.
+ * <p>
+ * When {@code websocket.port} is set, browser clients may connect there with WebSocket. They are
+ * admitted like any other client and served by a {@link WebSocketConnection} on the
+ * {@link NioFrontEnd}, which feeds their messages into the same decoder and routing.
+ */
+public class ConnectionManager {
+    private final int port;
+    private final int acceptorCount;
+    private final int backlog;
+    private final boolean reusePort;
+    private final boolean tcpNoDelay;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+    private final int maxConnections;
+    // Empty when the gateway transport is disabled
+    private final String gatewaySocketPath;
+    // 0 when the WebSocket endpoint is disabled
+    private final int webSocketPort;
+    private final boolean nioClients;
+    // Null when PlayerHandlers run on their own threads and there is no gateway transport
+    private final NioFrontEnd nioFrontEnd;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private ServerSocketChannel[] serverChannels;
+    private ServerSocketChannel gatewayChannel;
+    private ServerSocketChannel webSocketChannel;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new ConnectionManager using the options in {@link ServerConfig}
+     * @throws IOException if the NIO front end could not be created
+     */
+    public ConnectionManager() throws IOException {
+        this.port = ServerConfig.getInt("server.port", 5000);
+        this.acceptorCount = Math.max(ServerConfig.getInt("connection.acceptors", 2), 1);
+        this.backlog = ServerConfig.getInt("connection.backlog", 4096);
+        this.reusePort = ServerConfig.getBoolean("connection.reusePort", true);
+        this.tcpNoDelay = ServerConfig.getBoolean("socket.tcpNoDelay", true);
+        this.sendBufferSize = ServerConfig.getInt("socket.sendBufferSize", 0);
+        this.receiveBufferSize = ServerConfig.getInt("socket.receiveBufferSize", 0);
+        this.maxConnections = ServerConfig.getInt("connection.maxConnections", 100_000);
+        this.gatewaySocketPath = ServerConfig.getString("gateway.socketPath", "").trim();
+        this.webSocketPort = ServerConfig.getInt("websocket.port", 0);
+        this.nioClients = ServerConfig.getString("server.frontEnd", "threads").equalsIgnoreCase("nio");
+        this.nioFrontEnd = nioClients || !gatewaySocketPath.isEmpty() || webSocketPort > 0 ? new NioFrontEnd() : null;
+    }
+
+    /**
+     * Binds the listening sockets and starts the acceptor threads, including the gateway's and
+     * the WebSocket endpoint's
+     * @throws IOException if a listening socket could not be bound
+     */
+    public void start() throws IOException {
+        boolean perAcceptorSockets = reusePort && acceptorCount > 1 && supportsReusePort();
+        serverChannels = new ServerSocketChannel[perAcceptorSockets ? acceptorCount : 1];
+        for (int i = 0; i < serverChannels.length; i++) {
+            serverChannels[i] = openServerChannel(port, perAcceptorSockets);
+        }
+        if (nioFrontEnd != null) {
+            nioFrontEnd.start();
+        }
+        for (int i = 0; i < acceptorCount; i++) {
+            ServerSocketChannel serverChannel = serverChannels[i % serverChannels.length];
+            Thread.ofPlatform().name("RetroArcadeServer-Acceptor-" + i).start(() -> acceptLoop(serverChannel));
+        }
+        logInfo("ConnectionManager: Accepting connections on port", port, "with", acceptorCount, "acceptors,",
+                serverChannels.length, "listening sockets and a backlog of", backlog + ".");
+        if (!gatewaySocketPath.isEmpty()) {
+            startGateway();
+        }
+        if (webSocketPort > 0) {
+            webSocketChannel = openServerChannel(webSocketPort, false);
+            ServerSocketChannel channel = webSocketChannel;
+            Thread.ofPlatform().name("RetroArcadeServer-WebSocketAcceptor").start(() -> acceptWebSockets(channel));
+            logInfo("ConnectionManager: Accepting WebSocket connections on port", webSocketPort + ".");
+        }
+    }
+
+    /**
+     * The function the WebSocket endpoint's acceptor thread runs, accepts browser clients until
+     * the manager shuts down
+     * @param channel the WebSocket endpoint's listening socket
+     */
+    private void acceptWebSockets(ServerSocketChannel channel) {
+        while (running) {
+            try {
+                SocketChannel client = channel.accept();
+                if (admitAndConfigure(client)) {
+                    nioFrontEnd.registerWebSocket(client, this::createPlayerHandler, this::release);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logError("ConnectionManager: Failure to accept WebSocket connection:", e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Binds the gateway's Unix domain socket and starts its acceptor thread
+     * @throws IOException if the socket could not be bound
+     */
+    private void startGateway() throws IOException {
+        Path path = Path.of(gatewaySocketPath);
+        // A socket file left behind by an earlier run would stop the bind
+        Files.deleteIfExists(path);
+        gatewayChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            gatewayChannel.bind(UnixDomainSocketAddress.of(path), backlog);
+        } catch (IOException e) {
+            NioEventLoop.closeQuietly(gatewayChannel);
+            throw e;
+        }
+        ServerSocketChannel channel = gatewayChannel;
+        Thread.ofPlatform().name("RetroArcadeServer-GatewayAcceptor").start(() -> acceptGatewayLinks(channel));
+        logInfo("ConnectionManager: Accepting gateway links on", gatewaySocketPath + ".");
+    }
+
+    /**
+     * The function the gateway's acceptor thread runs, accepts links until the manager shuts down
+     * @param channel the gateway's listening socket
+     */
+    private void acceptGatewayLinks(ServerSocketChannel channel) {
+        while (running) {
+            try {
+                SocketChannel link = channel.accept();
+                logInfo("ConnectionManager: Gateway link connected.");
+                nioFrontEnd.registerLink(link, this::createGatewayPlayerHandler);
+            } catch (IOException e) {
+                if (running) {
+                    logError("ConnectionManager: Failure to accept gateway link:", e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether listening sockets can share a port with SO_REUSEPORT
+     * @return true if the option is available on this platform
+     */
+    private static boolean supportsReusePort() {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens and binds one listening socket
+     * @param port the port to listen on
+     * @param shared whether other listening sockets bind the same port with SO_REUSEPORT
+     * @return the bound listening socket
+     * @throws IOException if the socket could not be bound
+     */
+    private ServerSocketChannel openServerChannel(int port, boolean shared) throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            if (shared) {
+                serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            if (receiveBufferSize > 0) {
+                // Set before binding so that accepted sockets can use a matching TCP window
+                serverChannel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            }
+            serverChannel.bind(new InetSocketAddress(port), backlog);
+            return serverChannel;
+        } catch (IOException e) {
+            NioEventLoop.closeQuietly(serverChannel);
+            throw e;
+        }
+    }
+
+    /**
+     * The function each acceptor thread runs, accepts sockets until the manager shuts down
+     * @param serverChannel the listening socket this acceptor accepts from
+     */
+    private void acceptLoop(ServerSocketChannel serverChannel) {
+        while (running) {
+            try {
+                handleAccepted(serverChannel.accept());
+            } catch (IOException e) {
+                if (running) {
+                    logError("ConnectionManager: Failure to accept client connection:", e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Admits or rejects a newly accepted socket, then hands it to a PlayerHandler
+     * @param channel the accepted client socket
+     */
+    private void handleAccepted(SocketChannel channel) {
+        if (!admitAndConfigure(channel)) {
+            return;
+        }
+        if (nioClients) {
+            nioFrontEnd.register(channel, this::createPlayerHandler, this::release);
+        } else {
+            // The profile is attached once the client has logged in
+            PlayerHandler playerHandler = new PlayerHandler(channel.socket(), null);
+            playerHandler.setDisconnectCallback(this::release);
+            Thread.ofVirtual().name("PlayerHandler-" + channel.socket().getPort()).start(playerHandler::run);
+        }
+    }
+
+    /**
+     * Admits a newly accepted socket and applies the client socket options, closing it if it is
+     * refused or cannot be configured
+     * @param channel the accepted client socket
+     * @return true if the socket is admitted and ready to be handed to a PlayerHandler
+     */
+    private boolean admitAndConfigure(SocketChannel channel) {
+        if (!admit()) {
+            rejectedConnections.increment();
+            NioEventLoop.closeQuietly(channel);
+            return false;
+        }
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, tcpNoDelay);
+            if (sendBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferSize);
+            }
+            if (receiveBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            }
+        } catch (IOException e) {
+            logError("ConnectionManager: Failure to configure client socket:", e.toString());
+            NioEventLoop.closeQuietly(channel);
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates the PlayerHandler for a connection registered with the NIO front end.
+     * The profile is attached once the client has logged in.
+     * @param connection the connection the PlayerHandler will communicate through
+     * @return the new PlayerHandler
+     */
+    private PlayerHandler createPlayerHandler(ClientConnection connection) {
+        PlayerHandler playerHandler = PlayerHandler.connect(connection, null);
+        playerHandler.setDisconnectCallback(this::release);
+        return playerHandler;
+    }
+
+    /**
+     * Creates the PlayerHandler for a client that a gateway link has opened, if it is admitted.
+     * The profile is attached once the client has logged in.
+     * @param channel the channel the PlayerHandler will communicate through
+     * @return the new PlayerHandler, or null if the server is at its connection limit
+     */
+    private PlayerHandler createGatewayPlayerHandler(GatewayChannel channel) {
+        if (!admit()) {
+            rejectedConnections.increment();
+            return null;
+        }
+        PlayerHandler playerHandler = PlayerHandler.connect(channel, null);
+        playerHandler.setDisconnectCallback(this::release);
+        return playerHandler;
+    }
+
+    /**
+     * Reserves a connection slot if the server is below its connection limit
+     * @return true if the connection is admitted
+     */
+    private boolean admit() {
+        int current;
+        do {
+            current = activeConnections.get();
+            if (current >= maxConnections) {
+                return false;
+            }
+        } while (!activeConnections.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Frees the connection slot of a client that has disconnected
+     */
+    private void release() {
+        activeConnections.decrementAndGet();
+    }
+
+    /**
+     * Get the number of clients currently connected
+     * @return the active connection count
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * Get the number of sockets closed by admission control
+     * @return the rejected connection count
+     */
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    /**
+     * Stops accepting connections and shuts down the NIO front end if there is one
+     */
+    public void shutdown() {
+        running = false;
+        if (serverChannels != null) {
+            for (ServerSocketChannel serverChannel : serverChannels) {
+                NioEventLoop.closeQuietly(serverChannel);
+            }
+        }
+        if (webSocketChannel != null) {
+            NioEventLoop.closeQuietly(webSocketChannel);
+        }
+        if (gatewayChannel != null) {
+            NioEventLoop.closeQuietly(gatewayChannel);
+            try {
+                Files.deleteIfExists(Path.of(gatewaySocketPath));
+            } catch (IOException e) {
+                logError("ConnectionManager: Failure to remove gateway socket file:", e.toString());
+            }
+        }
+        if (nioFrontEnd != null) {
+            nioFrontEnd.shutdown();
+        }
+    }
+}
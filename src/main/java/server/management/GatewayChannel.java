@@ -0,0 +1,178 @@
+package server.management;
+
+import server.player.ClientConnection;
+import server.player.PlayerHandler;
+import server.utility.MessageDecoder;
+import server.utility.ServerConfig;
+import server.utility.WireFormat;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static server.utility.ServerLogger.logError;
+
+/**
+ * One client carried over a {@link GatewayLink}, the transport of that client's PlayerHandler.
+ * <p>
+ * Output is flow controlled per channel: the gateway starts each channel with
+ * {@code gateway.initialCredit} bytes and grants more with CREDIT frames as it writes to the
+ * client. A channel out of credit stops draining its PlayerHandler's queue, so a slow client
+ * cannot fill the link for everyone else; its messages wait in the queue, where they are
+ * coalesced, dropped or overflow exactly as for a directly connected client. A message is only
+ * written while credit remains, so a channel overshoots its credit by at most one message.
+ * Inbound traffic is bounded by the PlayerHandler's rate limiter.
+ * <p>
+ * Apart from {@link #outboundReady()}, every method must be called on the link's loop thread.
+ */
+public class GatewayChannel implements ClientConnection {
+    private static final long INITIAL_CREDIT = ServerConfig.getLong("gateway.initialCredit", 64 * 1024);
+
+    private final GatewayLink link;
+    private final int id;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private PlayerHandler playerHandler;
+    // Chosen from the first frame received, null until then
+    private WireFormat wireFormat;
+    // Bytes the gateway can still buffer for the client
+    private long credit = INITIAL_CREDIT;
+    private boolean closed;
+
+    /**
+     * Constructs a new channel
+     * @param link the link carrying the channel
+     * @param id the gateway's id for the client
+     */
+    GatewayChannel(GatewayLink link, int id) {
+        this.link = link;
+        this.id = id;
+    }
+
+    /**
+     * Set the PlayerHandler that owns this channel
+     * @param playerHandler the PlayerHandler that inbound frames are delivered to
+     */
+    void setPlayerHandler(PlayerHandler playerHandler) {
+        this.playerHandler = playerHandler;
+    }
+
+    /**
+     * Get the gateway's id for the client
+     * @return the channel id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Passes one client frame from a DATA link frame to the PlayerHandler.
+     * A malformed frame closes this channel only.
+     * @param body a buffer whose remaining bytes are exactly one binary frame or JSON line
+     */
+    void deliver(ByteBuffer body) {
+        if (closed || !body.hasRemaining()) {
+            return;
+        }
+        if (wireFormat == null) {
+            wireFormat = WireFormat.detect(body.get(body.position()));
+            playerHandler.setWireFormat(wireFormat);
+        }
+        if (wireFormat == WireFormat.JSON) {
+            int end = body.limit();
+            while (end > body.position() && (body.get(end - 1) == '\n' || body.get(end - 1) == '\r')) {
+                end--;
+            }
+            body.limit(end);
+            playerHandler.handleJsonFrame(body);
+            return;
+        }
+        try {
+            if (MessageDecoder.frameLength(body) != body.remaining()) {
+                throw new IllegalArgumentException("DATA must carry exactly one frame");
+            }
+            playerHandler.handleFrame(body);
+        } catch (IllegalArgumentException e) {
+            logError("GatewayChannel: Invalid frame on channel", id + ", closing channel:", e.toString());
+            close();
+        }
+    }
+
+    /**
+     * Adds credit granted by the gateway, resuming output if the channel had run out
+     * @param bytes the number of further bytes the gateway can buffer
+     */
+    void addCredit(long bytes) {
+        boolean blocked = credit <= 0;
+        credit += bytes;
+        if (blocked && credit > 0) {
+            outboundReady();
+        }
+    }
+
+    /**
+     * Schedules the PlayerHandler's queue to be drained on the loop's thread.
+     * Repeated signals before the drain runs only schedule it once.
+     */
+    @Override
+    public void outboundReady() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            link.getEventLoop().execute(this::drainOutbound);
+        }
+    }
+
+    /**
+     * Drains the PlayerHandler's queue into the link, as far as the channel's credit allows
+     */
+    private void drainOutbound() {
+        drainScheduled.set(false);
+        if (!closed) {
+            playerHandler.drainOutbound();
+            link.flush();
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return credit > 0;
+    }
+
+    @Override
+    public void write(ByteBuffer data) {
+        if (closed || !data.hasRemaining()) {
+            return;
+        }
+        credit -= data.remaining();
+        link.writeFrame(id, GatewayLink.FrameKind.DATA, data);
+    }
+
+    @Override
+    public void flush() {
+        link.flush();
+    }
+
+    /**
+     * Tells the gateway to disconnect the client and tells the PlayerHandler that it has gone
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        link.removeChannel(id);
+        link.writeFrame(id, GatewayLink.FrameKind.CLOSE, null);
+        link.flush();
+        playerHandler.handleDisconnect();
+    }
+
+    /**
+     * Tells the PlayerHandler that its client has gone, after the gateway closed the channel or
+     * the link itself closed
+     */
+    void closedByGateway() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        playerHandler.handleDisconnect();
+    }
+}
@@ -0,0 +1,335 @@
+package server.management;
+
+import server.player.PlayerHandler;
+import server.utility.WireFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static server.utility.ServerLogger.logError;
+import static server.utility.ServerLogger.logInfo;
+
+/**
+ * One connection from a gateway process that carries the traffic of many clients.
+ * <p>
+ * The gateway terminates client sockets itself and multiplexes them over a few links. Every
+ * link frame is tagged with the channel id the gateway gave one client:
+ * <pre>
+ * +--------------+---------------+-----------+------------------+
+ * | length (u32) | channel (u32) | kind (u8) | body             |
+ * +--------------+---------------+-----------+------------------+
+ * </pre>
+ * where {@code length} counts every byte after the length prefix and the kind is the
+ * {@link FrameKind} ordinal. Each channel is served by its own {@link GatewayChannel} and
+ * PlayerHandler, exactly as if the client were connected directly.
+ * <p>
+ * Every method is called on the owning loop's thread.
+ */
+public class GatewayLink implements NioChannelHandler {
+
+    /**
+     * The kinds of frame sent over a gateway link
+     */
+    public enum FrameKind {
+        /**
+         * Gateway to server: a client has connected, the body is empty
+         */
+        OPEN,
+
+        /**
+         * Gateway to server: the body is exactly one client frame, binary or a JSON line.
+         * Server to gateway: the body is bytes to write to the client socket unchanged.
+         */
+        DATA,
+
+        /**
+         * Gateway to server: the body is a u32 count of further bytes the gateway can buffer
+         * for the channel's client
+         */
+        CREDIT,
+
+        /**
+         * Either direction: the client has disconnected, or must be disconnected
+         */
+        CLOSE
+    }
+
+    private static final FrameKind[] FRAME_KINDS = FrameKind.values();
+
+    /** The size of the length prefix in bytes. */
+    public static final int LENGTH_PREFIX_SIZE = 4;
+
+    /** The size of the channel id and kind that follow the length prefix. */
+    public static final int HEADER_SIZE = 5;
+
+    /** The largest body a link frame may carry: one client frame or JSON line and its terminator. */
+    public static final int MAX_BODY_LENGTH = WireFormat.LENGTH_PREFIX_SIZE + WireFormat.MAX_FRAME_LENGTH + 2;
+
+    private final NioEventLoop eventLoop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final Function<GatewayChannel, PlayerHandler> playerHandlerFactory;
+    private final Map<Integer, GatewayChannel> channels = new HashMap<>();
+    // Bytes of an incomplete inbound link frame, null while no frame is in progress
+    private ByteBuffer partialFrame;
+    // Outbound buffers that have not been fully written yet, null while nothing is pending
+    private ArrayDeque<ByteBuffer> pendingWrites;
+    private boolean closed;
+
+    /**
+     * Constructs a new link for a socket already registered with the loop's Selector
+     * @param eventLoop the loop that owns this link
+     * @param channel the gateway socket
+     * @param key the socket's selection key
+     * @param playerHandlerFactory creates the PlayerHandler for a channel, or returns null to refuse it
+     */
+    GatewayLink(NioEventLoop eventLoop, SocketChannel channel, SelectionKey key,
+                Function<GatewayChannel, PlayerHandler> playerHandlerFactory) {
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.key = key;
+        this.playerHandlerFactory = playerHandlerFactory;
+    }
+
+    /**
+     * Get the loop that owns this link
+     * @return the link's event loop
+     */
+    NioEventLoop getEventLoop() {
+        return eventLoop;
+    }
+
+    /**
+     * Get the number of clients currently carried by this link
+     * @return the open channel count
+     */
+    public int getChannelCount() {
+        return channels.size();
+    }
+
+    @Override
+    public void read(ByteBuffer readBuffer) throws IOException {
+        readBuffer.clear();
+        int count = channel.read(readBuffer);
+        if (count < 0) {
+            close();
+            return;
+        }
+        readBuffer.flip();
+
+        ByteBuffer source = readBuffer;
+        if (partialFrame != null) {
+            // Append to the frame in progress and continue decoding from there
+            if (partialFrame.remaining() < readBuffer.remaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(partialFrame.capacity() * 2, partialFrame.position() + readBuffer.remaining()));
+                partialFrame.flip();
+                grown.put(partialFrame);
+                partialFrame = grown;
+            }
+            partialFrame.put(readBuffer);
+            partialFrame.flip();
+            source = partialFrame;
+        }
+
+        try {
+            deliverFrames(source);
+        } catch (IllegalArgumentException e) {
+            logError("GatewayLink: Invalid link frame, closing link:", e.toString());
+            close();
+        }
+
+        if (closed) {
+            return;
+        } else if (!source.hasRemaining()) {
+            partialFrame = null;
+        } else if (source == partialFrame) {
+            partialFrame.compact();
+        } else {
+            // Copy the incomplete frame out of the shared buffer
+            partialFrame = ByteBuffer.allocate(Math.max(source.remaining() * 2, 256));
+            partialFrame.put(source);
+        }
+    }
+
+    /**
+     * Handles every complete link frame in the buffer, leaving its position at the start of the
+     * first incomplete frame
+     * @param source the bytes read from the socket
+     * @throws IllegalArgumentException if a frame's length or kind is invalid
+     */
+    private void deliverFrames(ByteBuffer source) {
+        while (!closed && source.remaining() >= LENGTH_PREFIX_SIZE) {
+            int start = source.position();
+            int length = source.getInt(start);
+            if (length < HEADER_SIZE || length > HEADER_SIZE + MAX_BODY_LENGTH) {
+                throw new IllegalArgumentException("Invalid link frame length: " + length);
+            }
+            if (source.remaining() < LENGTH_PREFIX_SIZE + length) {
+                return;
+            }
+            int channelId = source.getInt(start + LENGTH_PREFIX_SIZE);
+            int kind = Byte.toUnsignedInt(source.get(start + LENGTH_PREFIX_SIZE + 4));
+            if (kind >= FRAME_KINDS.length) {
+                throw new IllegalArgumentException("Unknown link frame kind: " + kind);
+            }
+            int end = start + LENGTH_PREFIX_SIZE + length;
+            int limit = source.limit();
+            source.limit(end);
+            source.position(start + LENGTH_PREFIX_SIZE + HEADER_SIZE);
+            handleFrame(channelId, FRAME_KINDS[kind], source);
+            source.limit(limit);
+            source.position(end);
+        }
+    }
+
+    /**
+     * Handles one link frame
+     * @param channelId the channel the frame belongs to
+     * @param kind the kind of frame
+     * @param body a buffer whose remaining bytes are the frame's body
+     */
+    private void handleFrame(int channelId, FrameKind kind, ByteBuffer body) {
+        switch (kind) {
+            case OPEN -> open(channelId);
+            case DATA -> {
+                GatewayChannel gatewayChannel = channels.get(channelId);
+                // Frames may still arrive for a channel the server has just closed
+                if (gatewayChannel != null) {
+                    gatewayChannel.deliver(body);
+                }
+            }
+            case CREDIT -> {
+                GatewayChannel gatewayChannel = channels.get(channelId);
+                if (gatewayChannel != null && body.remaining() >= Integer.BYTES) {
+                    gatewayChannel.addCredit(Integer.toUnsignedLong(body.getInt(body.position())));
+                }
+            }
+            case CLOSE -> {
+                GatewayChannel gatewayChannel = channels.remove(channelId);
+                if (gatewayChannel != null) {
+                    gatewayChannel.closedByGateway();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the channel and PlayerHandler for a client the gateway has just accepted
+     * @param channelId the gateway's id for the client
+     */
+    private void open(int channelId) {
+        if (channels.containsKey(channelId)) {
+            logError("GatewayLink: Gateway opened channel", channelId, "twice, ignoring.");
+            return;
+        }
+        GatewayChannel gatewayChannel = new GatewayChannel(this, channelId);
+        PlayerHandler playerHandler = playerHandlerFactory.apply(gatewayChannel);
+        if (playerHandler == null) {
+            // Refused by admission control
+            writeFrame(channelId, FrameKind.CLOSE, null);
+            flush();
+            return;
+        }
+        gatewayChannel.setPlayerHandler(playerHandler);
+        channels.put(channelId, gatewayChannel);
+    }
+
+    /**
+     * Forgets a channel that the server has closed
+     * @param channelId the channel's id
+     */
+    void removeChannel(int channelId) {
+        channels.remove(channelId);
+    }
+
+    /**
+     * Appends a link frame to the pending output
+     * @param channelId the channel the frame belongs to
+     * @param kind the kind of frame
+     * @param body the frame's body, or null for none; the buffer must not be modified afterwards
+     */
+    void writeFrame(int channelId, FrameKind kind, ByteBuffer body) {
+        if (closed) {
+            return;
+        }
+        int bodyLength = body == null ? 0 : body.remaining();
+        ByteBuffer header = ByteBuffer.allocate(LENGTH_PREFIX_SIZE + HEADER_SIZE);
+        header.putInt(HEADER_SIZE + bodyLength).putInt(channelId).put((byte) kind.ordinal()).flip();
+        if (pendingWrites == null) {
+            pendingWrites = new ArrayDeque<>();
+        }
+        pendingWrites.add(header);
+        if (bodyLength > 0) {
+            pendingWrites.add(body);
+        }
+    }
+
+    /**
+     * Writes as much pending output as the socket accepts in gathering writes, waiting for write
+     * readiness if the socket's send buffer is full
+     */
+    @Override
+    public void flush() {
+        if (closed || pendingWrites == null) {
+            return;
+        }
+        ByteBuffer[] batch = eventLoop.writeBatch();
+        try {
+            while (!pendingWrites.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer pending : pendingWrites) {
+                    batch[count++] = pending;
+                    if (count == batch.length) {
+                        break;
+                    }
+                }
+                channel.write(batch, 0, count);
+                boolean batchWritten = !batch[count - 1].hasRemaining();
+                Arrays.fill(batch, 0, count, null);
+                while (!pendingWrites.isEmpty() && !pendingWrites.peek().hasRemaining()) {
+                    pendingWrites.poll();
+                }
+                if (!batchWritten) {
+                    // The socket is full, continue when the Selector reports it writable
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            pendingWrites = null;
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            Arrays.fill(batch, null);
+            close();
+        }
+    }
+
+    /**
+     * Closes the link and disconnects every client it carries
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        partialFrame = null;
+        pendingWrites = null;
+        key.cancel();
+        NioEventLoop.closeQuietly(channel);
+        if (!channels.isEmpty()) {
+            logInfo("GatewayLink: Link closed, disconnecting", channels.size(), "clients.");
+        }
+        for (GatewayChannel gatewayChannel : new ArrayList<>(channels.values())) {
+            gatewayChannel.closedByGateway();
+        }
+        channels.clear();
+    }
+}
@@ -0,0 +1,143 @@
+package server.management;
+
+import server.player.ClientConnection;
+import server.player.PlayerHandler;
+import server.profile.Profile;
+import server.utility.LatencyTracker;
+import server.utility.ThreadMessage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-process client connected straight to a real {@link PlayerHandler}, for server-hosted bots
+ * and load tests.
+ * <p>
+ * No socket is involved and nothing is encoded or decoded: messages sent through
+ * {@link #send(ThreadMessage)} are routed by the PlayerHandler as if a client had sent them, and
+ * every message the PlayerHandler would send lands in this client's inbox unchanged. Broadcasts
+ * such as TURN_RESULT keep their pre-encoded {@link server.utility.SharedFrame} payload, which a
+ * bot may decode with {@link server.utility.MessageDecoder} if it needs the contents. Sessions
+ * therefore run at memory speed, which lets their throughput be measured apart from network cost.
+ * <p>
+ * Rate limits and liveness checks apply exactly as they do for remote clients. {@link #send} must
+ * only be called from one thread at a time; the inbox may be read from any thread.
+ */
+public class LoopbackClient implements ClientConnection {
+    // Set once by connect, before the client is handed to anyone
+    private PlayerHandler playerHandler;
+    private final BlockingQueue<ThreadMessage<?>> inbox = new LinkedBlockingQueue<>();
+    // Producers drain on their own thread, the lock keeps their messages in order
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /**
+     * Private constructor, clients are created with {@link #connect(Profile)}
+     */
+    private LoopbackClient() { }
+
+    /**
+     * Creates a new client along with the PlayerHandler serving it
+     * @param profile the player's profile, or null until the bot has logged in
+     * @return the connected client
+     */
+    public static LoopbackClient connect(Profile profile) {
+        LoopbackClient client = new LoopbackClient();
+        client.playerHandler = PlayerHandler.connect(client, profile);
+        return client;
+    }
+
+    /**
+     * Get the PlayerHandler serving this client, to enqueue it or add it to a session
+     * @return the client's PlayerHandler
+     */
+    public PlayerHandler getPlayerHandler() {
+        return playerHandler;
+    }
+
+    /**
+     * Sends a message to the server as the client
+     * @param message the message, with the payload a decoded client message would carry
+     */
+    public void send(ThreadMessage<?> message) {
+        if (!closed.get()) {
+            playerHandler.handleMessage(message);
+        }
+    }
+
+    /**
+     * Removes the next message sent to the client, waiting for one to arrive
+     * @return the next message
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ThreadMessage<?> take() throws InterruptedException {
+        return inbox.take();
+    }
+
+    /**
+     * Removes the next message sent to the client, waiting up to the given time for one to arrive
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the next message, or null if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ThreadMessage<?> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return inbox.poll(timeout, unit);
+    }
+
+    /**
+     * Get the number of messages waiting in the client's inbox
+     * @return the inbox depth
+     */
+    public int pending() {
+        return inbox.size();
+    }
+
+    /**
+     * Moves every message waiting in the PlayerHandler's queue into the inbox on the calling
+     * thread, since there is no event loop to hand the work to
+     */
+    @Override
+    public void outboundReady() {
+        drainLock.lock();
+        try {
+            if (!closed.get()) {
+                playerHandler.drainOutbound();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean deliver(ThreadMessage<?> message) {
+        // Delivery is this transport's write, stamped before the bot's thread can see the message
+        LatencyTracker.stamp(message, LatencyTracker.Hop.WRITTEN);
+        inbox.add(message);
+        return true;
+    }
+
+    @Override
+    public void write(ByteBuffer data) {
+        // Every message is delivered unencoded, nothing is ever written
+    }
+
+    @Override
+    public void flush() {
+        // Nothing is buffered
+    }
+
+    /**
+     * Disconnects the client, as if its socket had closed
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            playerHandler.handleDisconnect();
+        }
+    }
+}
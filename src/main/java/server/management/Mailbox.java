@@ -0,0 +1,18 @@
+package server.management;
+
+import server.utility.ThreadMessage;
+
+/**
+ * Anything that can be sent a {@link ThreadMessage}, such as a GameSessionManager's inbox, which is
+ * bound into each of its players.
+ */
+@FunctionalInterface
+public interface Mailbox {
+
+    /**
+     * Queues a message for the owner without blocking the caller.
+     * May be called from any thread.
+     * @param message the message to queue
+     */
+    void deliver(ThreadMessage<?> message);
+}
@@ -0,0 +1,30 @@
+package server.management;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Something attached to a selection key on an {@link NioEventLoop}: a single client's
+ * {@link NioConnection} or a {@link GatewayLink} carrying many clients.
+ * <p>
+ * Every method is called on the owning loop's thread.
+ */
+interface NioChannelHandler {
+
+    /**
+     * Reads whatever the socket has available and handles every complete frame
+     * @param readBuffer the loop's shared read buffer
+     * @throws IOException if the socket read fails
+     */
+    void read(ByteBuffer readBuffer) throws IOException;
+
+    /**
+     * Writes as much pending output as the socket accepts
+     */
+    void flush();
+
+    /**
+     * Closes the socket and disconnects every client it carries
+     */
+    void close();
+}
@@ -0,0 +1,274 @@
+package server.management;
+
+import server.player.ClientConnection;
+import server.player.PlayerHandler;
+import server.utility.MessageDecoder;
+import server.utility.WireFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static server.utility.ServerLogger.logError;
+
+/**
+ * One client socket owned by an {@link NioEventLoop}.
+ * <p>
+ * Inbound bytes are split into length-prefixed binary frames, or newline-terminated JSON frames
+ * when the client negotiates the fallback, and passed to the PlayerHandler. A connection only
+ * holds buffers of its own while a frame or a write is incomplete, so an idle connection keeps
+ * no buffers at all.
+ * <p>
+ * Apart from {@link #outboundReady()}, every method must be called on the owning loop's thread.
+ */
+public class NioConnection implements ClientConnection, NioChannelHandler {
+    private final NioEventLoop eventLoop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private PlayerHandler playerHandler;
+    // Chosen from the first byte received, null until then
+    private WireFormat wireFormat;
+    // Bytes of an incomplete inbound frame, null while no frame is in progress
+    private ByteBuffer partialFrame;
+    // Outbound buffers that have not been fully written yet, null while nothing is pending
+    private ArrayDeque<ByteBuffer> pendingWrites;
+    // Set while the socket's send buffer is full, which pauses draining the PlayerHandler's queue
+    private boolean writeBlocked;
+    private boolean closed;
+
+    /**
+     * Constructs a new connection for a socket already registered with the loop's Selector
+     * @param eventLoop the loop that owns this connection
+     * @param channel the client socket
+     * @param key the socket's selection key
+     */
+    NioConnection(NioEventLoop eventLoop, SocketChannel channel, SelectionKey key) {
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Set the PlayerHandler that owns this connection
+     * @param playerHandler the PlayerHandler that inbound frames are delivered to
+     */
+    void setPlayerHandler(PlayerHandler playerHandler) {
+        this.playerHandler = playerHandler;
+    }
+
+    /**
+     * Reads whatever the socket has available and delivers every complete frame
+     * @param readBuffer the loop's shared read buffer
+     * @throws IOException if the socket read fails
+     */
+    @Override
+    public void read(ByteBuffer readBuffer) throws IOException {
+        readBuffer.clear();
+        int count = channel.read(readBuffer);
+        if (count < 0) {
+            close();
+            return;
+        }
+        readBuffer.flip();
+
+        ByteBuffer source = readBuffer;
+        if (partialFrame != null) {
+            // Append to the frame in progress and continue decoding from there
+            partialFrame = ensureCapacity(partialFrame, readBuffer.remaining());
+            partialFrame.put(readBuffer);
+            partialFrame.flip();
+            source = partialFrame;
+        }
+
+        deliverFrames(source);
+
+        if (closed) {
+            return;
+        } else if (!source.hasRemaining()) {
+            partialFrame = null;
+        } else if (source.remaining() > WireFormat.LENGTH_PREFIX_SIZE + WireFormat.MAX_FRAME_LENGTH) {
+            logError("NioConnection: Frame exceeds " + WireFormat.MAX_FRAME_LENGTH + " bytes, closing connection.");
+            close();
+        } else if (source == partialFrame) {
+            partialFrame.compact();
+        } else {
+            // Copy the incomplete frame out of the shared buffer
+            partialFrame = ByteBuffer.allocate(Math.max(source.remaining() * 2, 256));
+            partialFrame.put(source);
+        }
+    }
+
+    /**
+     * Delivers every complete frame in the buffer, leaving its position at the start of the
+     * first incomplete frame
+     * @param source the bytes read from the socket
+     */
+    private void deliverFrames(ByteBuffer source) {
+        if (wireFormat == null && source.hasRemaining()) {
+            wireFormat = WireFormat.detect(source.get(source.position()));
+            playerHandler.setWireFormat(wireFormat);
+        }
+        if (wireFormat == WireFormat.JSON) {
+            deliverJsonFrames(source);
+            return;
+        }
+        try {
+            int frameLength;
+            while (!closed && (frameLength = MessageDecoder.frameLength(source)) > 0) {
+                int start = source.position();
+                playerHandler.handleFrame(source);
+                source.position(start + frameLength);
+            }
+        } catch (IllegalArgumentException e) {
+            logError("NioConnection: Invalid frame, closing connection:", e.toString());
+            close();
+        }
+    }
+
+    /**
+     * Delivers every newline-terminated JSON frame in the buffer
+     * @param source the bytes read from the socket
+     */
+    private void deliverJsonFrames(ByteBuffer source) {
+        int limit = source.limit();
+        for (int i = source.position(); i < limit && !closed; i++) {
+            if (source.get(i) == '\n') {
+                int end = i > source.position() && source.get(i - 1) == '\r' ? i - 1 : i;
+                source.limit(end);
+                playerHandler.handleJsonFrame(source);
+                source.limit(limit);
+                source.position(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Makes sure a partial frame buffer can take more bytes, growing it if needed
+     * @param buffer the buffer in write mode
+     * @param extra the number of bytes about to be added
+     * @return a buffer in write mode with room for the extra bytes
+     */
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra) {
+        if (buffer.remaining() >= extra) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    /**
+     * Schedules the PlayerHandler's queue to be drained on the loop's thread.
+     * Repeated signals before the drain runs only schedule it once.
+     */
+    @Override
+    public void outboundReady() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(this::drainOutbound);
+        }
+    }
+
+    /**
+     * Drains the PlayerHandler's queue into the socket
+     */
+    private void drainOutbound() {
+        drainScheduled.set(false);
+        if (!closed) {
+            playerHandler.drainOutbound();
+            flush();
+        }
+    }
+
+    /**
+     * Checks whether more messages may be drained from the PlayerHandler's queue. While the
+     * socket is full they stay in the bounded queue, where its overflow policies apply, so at
+     * most one batch is ever held here.
+     * @return false while output is waiting for the socket to become writable
+     */
+    @Override
+    public boolean isWritable() {
+        return !writeBlocked;
+    }
+
+    @Override
+    public void write(ByteBuffer data) {
+        if (closed || !data.hasRemaining()) {
+            return;
+        }
+        if (pendingWrites == null) {
+            pendingWrites = new ArrayDeque<>();
+        }
+        pendingWrites.add(data);
+    }
+
+    /**
+     * Writes as much pending output as the socket accepts, waiting for write readiness if the
+     * socket's send buffer is full and draining the PlayerHandler's queue again once it has
+     * emptied. Pending buffers are handed to the socket together in
+     * gathering writes, so a batch of messages costs one system call rather than one each.
+     */
+    @Override
+    public void flush() {
+        if (closed || pendingWrites == null) {
+            return;
+        }
+        ByteBuffer[] batch = eventLoop.writeBatch();
+        try {
+            while (!pendingWrites.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer pending : pendingWrites) {
+                    batch[count++] = pending;
+                    if (count == batch.length) {
+                        break;
+                    }
+                }
+                channel.write(batch, 0, count);
+                boolean batchWritten = !batch[count - 1].hasRemaining();
+                Arrays.fill(batch, 0, count, null);
+                while (!pendingWrites.isEmpty() && !pendingWrites.peek().hasRemaining()) {
+                    pendingWrites.poll();
+                }
+                if (!batchWritten) {
+                    // The socket is full, continue when the Selector reports it writable
+                    writeBlocked = true;
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            pendingWrites = null;
+            key.interestOps(SelectionKey.OP_READ);
+            if (writeBlocked) {
+                // The backlog has cleared, drain whatever queued up while the socket was full
+                writeBlocked = false;
+                outboundReady();
+            }
+        } catch (IOException e) {
+            Arrays.fill(batch, null);
+            close();
+        }
+    }
+
+    /**
+     * Closes the socket and tells the PlayerHandler that its client has gone
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        partialFrame = null;
+        pendingWrites = null;
+        key.cancel();
+        NioEventLoop.closeQuietly(channel);
+        if (playerHandler != null) {
+            playerHandler.handleDisconnect();
+        }
+    }
+}
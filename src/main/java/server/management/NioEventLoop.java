@@ -0,0 +1,262 @@
+package server.management;
+
+import server.player.PlayerHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static server.utility.ServerLogger.logError;
+
+/**
+ * A single-threaded selector loop that owns a share of the NIO front end's client sockets.
+ * <p>
+ * The loop reads from every ready socket into one shared buffer, splits complete frames out of
+ * it and hands them to the owning {@link PlayerHandler}. Outbound messages are drained from the
+ * PlayerHandler's queue and written on this thread too, so an idle connection costs only its
+ * {@link NioConnection} and selection key rather than two threads and two stream buffers.
+ * <p>
+ * Other threads interact with the loop only through {@link #execute(Runnable)}.
+ */
+public class NioEventLoop implements Runnable {
+    /** The most buffers passed to a single gathering write. */
+    static final int MAX_WRITE_BATCH = 128;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+    // Shared by every connection on this loop, only partial frames are copied out of it
+    private final ByteBuffer readBuffer;
+    // Shared by every connection on this loop to hand pending writes to one gathering write
+    private final ByteBuffer[] writeBatch = new ByteBuffer[MAX_WRITE_BATCH];
+    // Shared by every WebSocket connection on this loop, created on first use
+    private WebSocketCodec webSocketCodec;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * Constructs a new event loop with its own Selector
+     * @param readBufferSize the size of the read buffer shared by this loop's connections
+     * @throws IOException if the Selector could not be opened
+     */
+    public NioEventLoop(int readBufferSize) throws IOException {
+        this.selector = Selector.open();
+        this.readBuffer = ByteBuffer.allocate(readBufferSize);
+    }
+
+    /**
+     * Starts the loop on a dedicated platform thread
+     * @param name the name of the thread
+     */
+    public void start(String name) {
+        thread = Thread.ofPlatform().name(name).start(this);
+    }
+
+    /**
+     * Runs a task on the loop's thread, waking the Selector if needed
+     * @param task the task to run
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Hands an accepted socket to this loop and creates its PlayerHandler on the loop's thread
+     * @param channel the accepted client socket
+     * @param playerHandlerFactory creates the PlayerHandler that will own the connection
+     * @param onFailure run if the socket cannot be registered, before any PlayerHandler exists,
+     *                  such as to free the connection slot reserved for it
+     */
+    public void register(SocketChannel channel, Function<NioConnection, PlayerHandler> playerHandlerFactory, Runnable onFailure) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                NioConnection connection = new NioConnection(this, channel, key);
+                connection.setPlayerHandler(playerHandlerFactory.apply(connection));
+                key.attach(connection);
+            } catch (IOException e) {
+                logError("NioEventLoop: Failure to register client connection:", e.toString());
+                closeQuietly(channel);
+                onFailure.run();
+            }
+        });
+    }
+
+    /**
+     * Hands an accepted WebSocket client to this loop and creates its PlayerHandler on the
+     * loop's thread, before the upgrade handshake
+     * @param channel the accepted client socket
+     * @param playerHandlerFactory creates the PlayerHandler that will own the connection
+     * @param onFailure run if the socket cannot be registered, before any PlayerHandler exists,
+     *                  such as to free the connection slot reserved for it
+     */
+    public void registerWebSocket(SocketChannel channel, Function<WebSocketConnection, PlayerHandler> playerHandlerFactory, Runnable onFailure) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                WebSocketConnection connection = new WebSocketConnection(this, channel, key);
+                connection.setPlayerHandler(playerHandlerFactory.apply(connection));
+                key.attach(connection);
+            } catch (IOException e) {
+                logError("NioEventLoop: Failure to register WebSocket connection:", e.toString());
+                closeQuietly(channel);
+                onFailure.run();
+            }
+        });
+    }
+
+    /**
+     * Hands a gateway link to this loop. The link creates a PlayerHandler on the loop's thread
+     * for every channel the gateway opens.
+     * @param channel the accepted gateway socket
+     * @param playerHandlerFactory creates the PlayerHandler for a channel, or returns null to refuse it
+     */
+    public void registerLink(SocketChannel channel, Function<GatewayChannel, PlayerHandler> playerHandlerFactory) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new GatewayLink(this, channel, key, playerHandlerFactory));
+            } catch (IOException e) {
+                logError("NioEventLoop: Failure to register gateway link:", e.toString());
+                closeQuietly(channel);
+            }
+        });
+    }
+
+    /**
+     * Stops the loop and closes every connection it owns
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * The function that the thread runs, waits for socket readiness and queued tasks
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                wakeupPending.set(false);
+                runTasks();
+                processSelectedKeys();
+            } catch (ClosedSelectorException e) {
+                // The selector was closed underneath us, nothing left to serve
+                break;
+            } catch (IOException e) {
+                logError("NioEventLoop: Failure while selecting:", e.toString());
+            }
+        }
+        closeAll();
+    }
+
+    /**
+     * Runs every task queued by other threads
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logError("NioEventLoop: Task failed:", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Reads from and writes to every connection the Selector reported as ready
+     */
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            NioChannelHandler connection = (NioChannelHandler) key.attachment();
+            if (connection == null || !key.isValid()) {
+                continue;
+            }
+            try {
+                if (key.isReadable()) {
+                    connection.read(readBuffer);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (IOException e) {
+                connection.close();
+            } catch (RuntimeException e) {
+                // A failure handling one client must not take down every connection on the loop
+                logError("NioEventLoop: Failure handling client connection:", e.toString());
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Closes every connection and the Selector itself
+     */
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioChannelHandler connection) {
+                connection.close();
+            } else {
+                closeQuietly(key.channel());
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logError("NioEventLoop: Failure to close selector:", e.toString());
+        }
+    }
+
+    /**
+     * Get the array connections use to pass pending writes to a gathering write.
+     * Only valid on the loop's thread, and entries must be cleared after use.
+     * @return the loop's shared write batch
+     */
+    ByteBuffer[] writeBatch() {
+        return writeBatch;
+    }
+
+    /**
+     * Get the permessage-deflate codec shared by this loop's WebSocket connections.
+     * Only valid on the loop's thread.
+     * @return the loop's WebSocket codec
+     */
+    WebSocketCodec webSocketCodec() {
+        if (webSocketCodec == null) {
+            webSocketCodec = new WebSocketCodec(WebSocketConnection.MAX_MESSAGE_SIZE);
+        }
+        return webSocketCodec;
+    }
+
+    /**
+     * Closes a channel, ignoring any failure
+     * @param channel the channel to close
+     */
+    static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing more can be done for a channel that fails to close
+        }
+    }
+}
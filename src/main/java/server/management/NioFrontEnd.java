@@ -0,0 +1,102 @@
+package server.management;
+
+import server.player.PlayerHandler;
+import server.utility.ServerConfig;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static server.utility.ServerLogger.logInfo;
+
+/**
+ * An optional NIO front end that spreads accepted client sockets across a small, fixed set of
+ * {@link NioEventLoop}s. Sockets are accepted by the {@link ConnectionManager}.
+ * <p>
+ * Unlike the blocking path, where every PlayerHandler runs its own queue thread and listener
+ * thread, PlayerHandlers created here have no threads: their event loop decodes inbound frames,
+ * passes them to the PlayerHandler's routing, and writes its outbound messages.
+ */
+public class NioFrontEnd {
+    private final NioEventLoop[] eventLoops;
+    // Shared by every acceptor thread
+    private final AtomicInteger nextEventLoop = new AtomicInteger();
+
+    /**
+     * Constructs a new front end using the loop count in {@link ServerConfig}
+     * @throws IOException if a Selector could not be opened
+     */
+    public NioFrontEnd() throws IOException {
+        this(ServerConfig.getInt("nio.eventLoops", 0));
+    }
+
+    /**
+     * Constructs a new front end
+     * @param eventLoopCount the number of event loops, or 0 for one per available processor
+     * @throws IOException if a Selector could not be opened
+     */
+    public NioFrontEnd(int eventLoopCount) throws IOException {
+        int loops = eventLoopCount > 0 ? eventLoopCount : Runtime.getRuntime().availableProcessors();
+        int readBufferSize = ServerConfig.getInt("nio.readBufferSize", 64 * 1024);
+        this.eventLoops = new NioEventLoop[loops];
+        for (int i = 0; i < loops; i++) {
+            eventLoops[i] = new NioEventLoop(readBufferSize);
+        }
+    }
+
+    /**
+     * Starts the event loops
+     */
+    public void start() {
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i].start("RetroArcadeServer-NioEventLoop-" + i);
+        }
+        logInfo("NioFrontEnd: Serving connections with", eventLoops.length, "event loops.");
+    }
+
+    /**
+     * Hands an accepted socket to the next event loop.
+     * May be called from any acceptor thread.
+     * @param channel the accepted client socket
+     * @param playerHandlerFactory creates the PlayerHandler that will own the connection
+     * @param onFailure run if the socket cannot be registered, before any PlayerHandler exists
+     */
+    public void register(SocketChannel channel, Function<NioConnection, PlayerHandler> playerHandlerFactory, Runnable onFailure) {
+        int index = Math.floorMod(nextEventLoop.getAndIncrement(), eventLoops.length);
+        eventLoops[index].register(channel, playerHandlerFactory, onFailure);
+    }
+
+    /**
+     * Hands an accepted WebSocket client to the next event loop.
+     * May be called from any acceptor thread.
+     * @param channel the accepted client socket
+     * @param playerHandlerFactory creates the PlayerHandler that will own the connection
+     * @param onFailure run if the socket cannot be registered, before any PlayerHandler exists
+     */
+    public void registerWebSocket(SocketChannel channel, Function<WebSocketConnection, PlayerHandler> playerHandlerFactory, Runnable onFailure) {
+        int index = Math.floorMod(nextEventLoop.getAndIncrement(), eventLoops.length);
+        eventLoops[index].registerWebSocket(channel, playerHandlerFactory, onFailure);
+    }
+
+    /**
+     * Hands an accepted gateway link to the next event loop.
+     * May be called from any acceptor thread.
+     * @param channel the accepted gateway socket
+     * @param playerHandlerFactory creates the PlayerHandler for each channel the gateway opens,
+     *                             or returns null to refuse it
+     */
+    public void registerLink(SocketChannel channel, Function<GatewayChannel, PlayerHandler> playerHandlerFactory) {
+        int index = Math.floorMod(nextEventLoop.getAndIncrement(), eventLoops.length);
+        eventLoops[index].registerLink(channel, playerHandlerFactory);
+    }
+
+    /**
+     * Shuts down every event loop
+     */
+    public void shutdown() {
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+}
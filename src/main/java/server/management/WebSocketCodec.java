@@ -0,0 +1,89 @@
+package server.management;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and decompresses WebSocket messages for the permessage-deflate extension.
+ * <p>
+ * Connections negotiate the extension without context takeover in either direction, so no
+ * compression state outlives a message and one codec can be shared by every connection on an
+ * {@link NioEventLoop}, rather than each connection holding its own Deflater and Inflater.
+ * Only used from the owning loop's thread.
+ */
+class WebSocketCodec {
+    // Every deflate block flushed with SYNC_FLUSH ends with these bytes, which are not sent
+    private static final byte[] DEFLATE_TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final Inflater inflater = new Inflater(true);
+    // Holds the last inflated message, which bounds how large a compressed message may expand
+    private final byte[] inflated;
+    private byte[] deflated = new byte[1024];
+
+    /**
+     * Constructs a new codec
+     * @param maxMessageSize the largest message a client may send once decompressed
+     */
+    WebSocketCodec(int maxMessageSize) {
+        this.inflated = new byte[maxMessageSize];
+    }
+
+    /**
+     * Decompresses a message received from a client
+     * @param compressed the message's payload, consumed by the call
+     * @return the decompressed message, only valid until the next call
+     * @throws IllegalArgumentException if the payload is not valid deflate data or expands too far
+     */
+    ByteBuffer inflate(ByteBuffer compressed) {
+        inflater.reset();
+        try {
+            inflater.setInput(compressed);
+            int length = inflateAll(0);
+            inflater.setInput(DEFLATE_TAIL);
+            length = inflateAll(length);
+            return ByteBuffer.wrap(inflated, 0, length);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid compressed message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Inflates until the Inflater has consumed its input
+     * @param offset the number of bytes already inflated
+     * @return the number of bytes inflated in total
+     * @throws DataFormatException if the input is not valid deflate data
+     */
+    private int inflateAll(int offset) throws DataFormatException {
+        int length = offset;
+        while (!inflater.finished() && !inflater.needsInput()) {
+            if (length == inflated.length) {
+                throw new IllegalArgumentException("Decompressed message exceeds " + inflated.length + " bytes");
+            }
+            length += inflater.inflate(inflated, length, inflated.length - length);
+        }
+        return length;
+    }
+
+    /**
+     * Compresses a message to send to a client
+     * @param payload the message, consumed by the call
+     * @return the compressed message
+     */
+    ByteBuffer deflate(ByteBuffer payload) {
+        deflater.reset();
+        deflater.setInput(payload);
+        int length = 0;
+        while (true) {
+            length += deflater.deflate(deflated, length, deflated.length - length, Deflater.SYNC_FLUSH);
+            if (length < deflated.length) {
+                break;
+            }
+            deflated = Arrays.copyOf(deflated, deflated.length * 2);
+        }
+        return ByteBuffer.wrap(Arrays.copyOf(deflated, length - DEFLATE_TAIL.length));
+    }
+}
@@ -0,0 +1,602 @@
+package server.management;
+
+import server.player.ClientConnection;
+import server.player.PlayerHandler;
+import server.utility.MessageDecoder;
+import server.utility.ServerConfig;
+import server.utility.WireFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static server.utility.ServerLogger.logError;
+
+/**
+ * One browser client connected over WebSocket and owned by an {@link NioEventLoop}.
+ * <p>
+ * The connection starts with the HTTP upgrade handshake, then carries client messages in
+ * WebSocket messages: a binary message holds one or more binary frames and a text message holds
+ * one or more JSON lines, which go through the same {@link MessageDecoder} and PlayerHandler
+ * routing as a TCP client's. The first message chooses the wire format. Everything the
+ * PlayerHandler writes between two flushes is sent back as one WebSocket message.
+ * <p>
+ * When {@code websocket.permessageDeflate} is enabled and the browser offers it, messages of at
+ * least {@code websocket.deflateMinSize} bytes are compressed, using the loop's shared
+ * {@link WebSocketCodec}.
+ * <p>
+ * Apart from {@link #outboundReady()}, every method must be called on the owning loop's thread.
+ */
+public class WebSocketConnection implements ClientConnection, NioChannelHandler {
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int MAX_HANDSHAKE_LENGTH = 8192;
+    private static final String PATH = ServerConfig.getString("websocket.path", "/");
+    private static final boolean DEFLATE_ENABLED = ServerConfig.getBoolean("websocket.permessageDeflate", true);
+    private static final int DEFLATE_MIN_SIZE = ServerConfig.getInt("websocket.deflateMinSize", 128);
+    /** The largest message a client may send, after any decompression. */
+    static final int MAX_MESSAGE_SIZE = ServerConfig.getInt("websocket.maxMessageSize", 64 * 1024);
+
+    private static final int OPCODE_CONTINUATION = 0x0;
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_BINARY = 0x2;
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+    private static final int STATUS_NORMAL = 1000;
+
+    private final NioEventLoop eventLoop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private PlayerHandler playerHandler;
+    private boolean handshakeComplete;
+    // Whether permessage-deflate was negotiated
+    private boolean deflate;
+    // Chosen from the first message received, null until then
+    private WireFormat wireFormat;
+    // Bytes of an incomplete handshake or frame, null while nothing is in progress
+    private ByteBuffer partialFrame;
+    // The fragments of a message split across frames, null while no message is in progress
+    private ByteBuffer fragmentedMessage;
+    private boolean fragmentedText;
+    private boolean fragmentedCompressed;
+    // Bytes the PlayerHandler has written since the last flush, sent as one message
+    private ArrayDeque<ByteBuffer> outboundMessage;
+    // Socket output that has not been fully written yet, null while nothing is pending
+    private ArrayDeque<ByteBuffer> pendingWrites;
+    // Set while the socket's send buffer is full, which pauses draining the PlayerHandler's queue
+    private boolean writeBlocked;
+    private boolean closeAfterFlush;
+    private boolean closed;
+
+    /**
+     * Constructs a new connection for a socket already registered with the loop's Selector
+     * @param eventLoop the loop that owns this connection
+     * @param channel the client socket
+     * @param key the socket's selection key
+     */
+    WebSocketConnection(NioEventLoop eventLoop, SocketChannel channel, SelectionKey key) {
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Set the PlayerHandler that owns this connection
+     * @param playerHandler the PlayerHandler that inbound frames are delivered to
+     */
+    void setPlayerHandler(PlayerHandler playerHandler) {
+        this.playerHandler = playerHandler;
+    }
+
+    @Override
+    public void read(ByteBuffer readBuffer) throws IOException {
+        readBuffer.clear();
+        int count = channel.read(readBuffer);
+        if (count < 0) {
+            close();
+            return;
+        }
+        readBuffer.flip();
+
+        ByteBuffer source = readBuffer;
+        if (partialFrame != null) {
+            // Append to the handshake or frame in progress and continue from there
+            if (partialFrame.remaining() < readBuffer.remaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(partialFrame.capacity() * 2, partialFrame.position() + readBuffer.remaining()));
+                partialFrame.flip();
+                grown.put(partialFrame);
+                partialFrame = grown;
+            }
+            partialFrame.put(readBuffer);
+            partialFrame.flip();
+            source = partialFrame;
+        }
+
+        try {
+            if (!handshakeComplete) {
+                readHandshake(source);
+            }
+            if (handshakeComplete) {
+                readFrames(source);
+            }
+        } catch (IllegalArgumentException e) {
+            logError("WebSocketConnection: Protocol error, closing connection:", e.toString());
+            close();
+        }
+
+        if (closed || closeAfterFlush) {
+            return;
+        } else if (!source.hasRemaining()) {
+            partialFrame = null;
+        } else if (source.remaining() > (handshakeComplete ? MAX_MESSAGE_SIZE + 14 : MAX_HANDSHAKE_LENGTH)) {
+            logError("WebSocketConnection: Frame exceeds " + MAX_MESSAGE_SIZE + " bytes, closing connection.");
+            close();
+        } else if (source == partialFrame) {
+            partialFrame.compact();
+        } else {
+            // Copy the incomplete frame out of the shared buffer
+            partialFrame = ByteBuffer.allocate(Math.max(source.remaining() * 2, 256));
+            partialFrame.put(source);
+        }
+    }
+
+    /**
+     * Answers the HTTP upgrade request once all of it has arrived
+     * @param source the bytes read from the socket
+     */
+    private void readHandshake(ByteBuffer source) {
+        int end = -1;
+        for (int i = source.position(); i + 3 < source.limit(); i++) {
+            if (source.get(i) == '\r' && source.get(i + 1) == '\n' && source.get(i + 2) == '\r' && source.get(i + 3) == '\n') {
+                end = i + 4;
+                break;
+            }
+        }
+        if (end < 0) {
+            return;
+        }
+        byte[] request = new byte[end - source.position()];
+        source.get(request);
+        String response = handshake(new String(request, StandardCharsets.ISO_8859_1));
+        if (response == null) {
+            queueWrite(ByteBuffer.wrap("HTTP/1.1 400 Bad Request\r\nConnection: close\r\nContent-Length: 0\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII)));
+            closeAfterFlush = true;
+            source.position(source.limit());
+        } else {
+            queueWrite(ByteBuffer.wrap(response.getBytes(StandardCharsets.US_ASCII)));
+            handshakeComplete = true;
+            // Messages queued during the handshake were left in the PlayerHandler's queue
+            outboundReady();
+        }
+        flush();
+    }
+
+    /**
+     * Validates an upgrade request and builds the response accepting it
+     * @param request the request line and headers
+     * @return the 101 response, or null if the request is not a valid WebSocket upgrade
+     */
+    private String handshake(String request) {
+        String[] lines = request.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[0].equals("GET") || !requestLine[1].equals(PATH)) {
+            return null;
+        }
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.merge(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        lines[i].substring(colon + 1).trim(), (first, second) -> first + ", " + second);
+            }
+        }
+        String key = headers.get("sec-websocket-key");
+        if (key == null || !"websocket".equalsIgnoreCase(headers.get("upgrade"))
+                || !"13".equals(headers.get("sec-websocket-version"))) {
+            return null;
+        }
+        StringBuilder response = new StringBuilder("HTTP/1.1 101 Switching Protocols\r\n")
+                .append("Upgrade: websocket\r\nConnection: Upgrade\r\n")
+                .append("Sec-WebSocket-Accept: ").append(acceptKey(key)).append("\r\n");
+        String extensions = headers.getOrDefault("sec-websocket-extensions", "");
+        if (DEFLATE_ENABLED && extensions.toLowerCase(Locale.ROOT).contains("permessage-deflate")) {
+            deflate = true;
+            // Without context takeover no compression state outlives a message
+            response.append("Sec-WebSocket-Extensions: permessage-deflate; server_no_context_takeover; client_no_context_takeover\r\n");
+        }
+        return response.append("\r\n").toString();
+    }
+
+    /**
+     * Computes the Sec-WebSocket-Accept value for a client's key
+     * @param key the client's Sec-WebSocket-Key
+     * @return the value proving the server understood the handshake
+     */
+    private static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JDK is required to provide SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Handles every complete WebSocket frame in the buffer, leaving its position at the start of
+     * the first incomplete frame
+     * @param source the bytes read from the socket
+     */
+    private void readFrames(ByteBuffer source) {
+        while (!closed && !closeAfterFlush && source.remaining() >= 2) {
+            int start = source.position();
+            int first = Byte.toUnsignedInt(source.get(start));
+            int second = Byte.toUnsignedInt(source.get(start + 1));
+            boolean fin = (first & 0x80) != 0;
+            boolean compressed = (first & 0x40) != 0;
+            int opcode = first & 0x0F;
+            if ((second & 0x80) == 0) {
+                throw new IllegalArgumentException("Client frames must be masked");
+            }
+            if ((first & 0x30) != 0 || (compressed && !deflate)) {
+                throw new IllegalArgumentException("Reserved bits set without a negotiated extension");
+            }
+            long length = second & 0x7F;
+            int headerLength = 2;
+            if (length == 126) {
+                if (source.remaining() < 4) {
+                    return;
+                }
+                length = Short.toUnsignedInt(source.getShort(start + 2));
+                headerLength = 4;
+            } else if (length == 127) {
+                if (source.remaining() < 10) {
+                    return;
+                }
+                length = source.getLong(start + 2);
+                headerLength = 10;
+            }
+            if (length < 0 || length > MAX_MESSAGE_SIZE) {
+                throw new IllegalArgumentException("Frame exceeds " + MAX_MESSAGE_SIZE + " bytes");
+            }
+            if (opcode >= OPCODE_CLOSE && (!fin || length > 125)) {
+                throw new IllegalArgumentException("Invalid control frame");
+            }
+            int maskOffset = start + headerLength;
+            int payloadStart = maskOffset + 4;
+            int end = payloadStart + (int) length;
+            if (source.limit() < end) {
+                return;
+            }
+            for (int i = payloadStart; i < end; i++) {
+                source.put(i, (byte) (source.get(i) ^ source.get(maskOffset + ((i - payloadStart) & 3))));
+            }
+            int limit = source.limit();
+            source.limit(end);
+            source.position(payloadStart);
+            handleFrame(fin, compressed, opcode, source);
+            source.limit(limit);
+            source.position(end);
+        }
+    }
+
+    /**
+     * Handles one unmasked WebSocket frame
+     * @param fin whether the frame ends its message
+     * @param compressed whether the frame starts a compressed message
+     * @param opcode the frame's opcode
+     * @param payload a buffer whose remaining bytes are the frame's payload
+     */
+    private void handleFrame(boolean fin, boolean compressed, int opcode, ByteBuffer payload) {
+        switch (opcode) {
+            case OPCODE_TEXT, OPCODE_BINARY -> {
+                if (fragmentedMessage != null) {
+                    throw new IllegalArgumentException("New message before the last one finished");
+                }
+                if (fin) {
+                    // Delivered straight from the read buffer unless it needs decompressing
+                    deliverMessage(compressed ? eventLoop.webSocketCodec().inflate(payload) : payload, opcode == OPCODE_TEXT);
+                } else {
+                    fragmentedMessage = ByteBuffer.allocate(Math.min(Math.max(payload.remaining() * 2, 256), MAX_MESSAGE_SIZE));
+                    fragmentedText = opcode == OPCODE_TEXT;
+                    fragmentedCompressed = compressed;
+                    appendFragment(payload);
+                }
+            }
+            case OPCODE_CONTINUATION -> {
+                if (fragmentedMessage == null) {
+                    throw new IllegalArgumentException("Continuation frame without a message");
+                }
+                appendFragment(payload);
+                if (fin) {
+                    ByteBuffer message = fragmentedMessage.flip();
+                    fragmentedMessage = null;
+                    deliverMessage(fragmentedCompressed ? eventLoop.webSocketCodec().inflate(message) : message, fragmentedText);
+                }
+            }
+            case OPCODE_PING -> {
+                queueFrame(OPCODE_PONG, false, copy(payload));
+                flush();
+            }
+            case OPCODE_PONG -> {
+                // Only sent in answer to pings, which the server does not send
+            }
+            case OPCODE_CLOSE -> {
+                // Echo the client's status code, then close once it has been written
+                queueFrame(OPCODE_CLOSE, false, copy(payload));
+                closeAfterFlush = true;
+                flush();
+            }
+            default -> throw new IllegalArgumentException("Unknown opcode: " + opcode);
+        }
+    }
+
+    /**
+     * Copies a frame's payload out of the read buffer
+     * @param payload the payload
+     * @return a buffer that stays valid after the read buffer is reused
+     */
+    private static ByteBuffer copy(ByteBuffer payload) {
+        ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+        copy.put(payload).flip();
+        return copy;
+    }
+
+    /**
+     * Appends a fragment to the message in progress, growing it up to the largest message allowed
+     * @param payload the fragment's payload
+     */
+    private void appendFragment(ByteBuffer payload) {
+        if (fragmentedMessage.remaining() < payload.remaining()) {
+            int needed = fragmentedMessage.position() + payload.remaining();
+            if (needed > MAX_MESSAGE_SIZE) {
+                throw new IllegalArgumentException("Message exceeds " + MAX_MESSAGE_SIZE + " bytes");
+            }
+            ByteBuffer grown = ByteBuffer.allocate(Math.min(Math.max(fragmentedMessage.capacity() * 2, needed), MAX_MESSAGE_SIZE));
+            fragmentedMessage.flip();
+            grown.put(fragmentedMessage);
+            fragmentedMessage = grown;
+        }
+        fragmentedMessage.put(payload);
+    }
+
+    /**
+     * Passes every client message in a WebSocket message to the PlayerHandler
+     * @param message the message's payload
+     * @param text whether the message holds JSON lines rather than binary frames
+     */
+    private void deliverMessage(ByteBuffer message, boolean text) {
+        if (wireFormat == null) {
+            wireFormat = text ? WireFormat.JSON : WireFormat.BINARY;
+            playerHandler.setWireFormat(wireFormat);
+        }
+        if (text) {
+            deliverJsonFrames(message);
+            return;
+        }
+        int frameLength;
+        while (!closed && (frameLength = MessageDecoder.frameLength(message)) > 0) {
+            int start = message.position();
+            playerHandler.handleFrame(message);
+            message.position(start + frameLength);
+        }
+        if (!closed && message.hasRemaining()) {
+            throw new IllegalArgumentException("Binary message ends with an incomplete frame");
+        }
+    }
+
+    /**
+     * Passes every JSON line in a text message to the PlayerHandler, the last line needs no newline
+     * @param message the message's payload
+     */
+    private void deliverJsonFrames(ByteBuffer message) {
+        int limit = message.limit();
+        while (!closed && message.hasRemaining()) {
+            int end = message.position();
+            while (end < limit && message.get(end) != '\n') {
+                end++;
+            }
+            int lineEnd = end > message.position() && message.get(end - 1) == '\r' ? end - 1 : end;
+            if (lineEnd > message.position()) {
+                message.limit(lineEnd);
+                playerHandler.handleJsonFrame(message);
+                message.limit(limit);
+            }
+            message.position(Math.min(end + 1, limit));
+        }
+    }
+
+    /**
+     * Schedules the PlayerHandler's queue to be drained on the loop's thread.
+     * Repeated signals before the drain runs only schedule it once.
+     */
+    @Override
+    public void outboundReady() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(this::drainOutbound);
+        }
+    }
+
+    /**
+     * Drains the PlayerHandler's queue into the socket
+     */
+    private void drainOutbound() {
+        drainScheduled.set(false);
+        if (!closed) {
+            playerHandler.drainOutbound();
+            flush();
+        }
+    }
+
+    /**
+     * Checks whether more messages may be drained from the PlayerHandler's queue. Until the
+     * handshake is done, and while the socket is full, they stay in the bounded queue where its
+     * overflow policies apply, so at most one batch is ever held here.
+     * @return false before the handshake and while output is waiting for the socket to become writable
+     */
+    @Override
+    public boolean isWritable() {
+        return handshakeComplete && !writeBlocked;
+    }
+
+    @Override
+    public void write(ByteBuffer data) {
+        if (closed || !data.hasRemaining()) {
+            return;
+        }
+        if (outboundMessage == null) {
+            outboundMessage = new ArrayDeque<>();
+        }
+        outboundMessage.add(data);
+    }
+
+    /**
+     * Sends what the PlayerHandler has written as one WebSocket message, once the handshake is
+     * done, then writes as much pending output as the socket accepts
+     */
+    @Override
+    public void flush() {
+        if (closed) {
+            return;
+        }
+        if (handshakeComplete && outboundMessage != null) {
+            int length = 0;
+            for (ByteBuffer part : outboundMessage) {
+                length += part.remaining();
+            }
+            ByteBuffer message = ByteBuffer.allocate(length);
+            for (ByteBuffer part : outboundMessage) {
+                message.put(part);
+            }
+            message.flip();
+            outboundMessage = null;
+            boolean compress = deflate && length >= DEFLATE_MIN_SIZE;
+            queueFrame(wireFormat == WireFormat.JSON ? OPCODE_TEXT : OPCODE_BINARY, compress,
+                    compress ? eventLoop.webSocketCodec().deflate(message) : message);
+        }
+        writePending();
+    }
+
+    /**
+     * Queues one unmasked, unfragmented frame
+     * @param opcode the frame's opcode
+     * @param compressed whether the payload is compressed
+     * @param payload the frame's payload
+     */
+    private void queueFrame(int opcode, boolean compressed, ByteBuffer payload) {
+        int length = payload.remaining();
+        ByteBuffer header = ByteBuffer.allocate(length < 126 ? 2 : length <= 0xFFFF ? 4 : 10);
+        header.put((byte) (0x80 | (compressed ? 0x40 : 0) | opcode));
+        if (length < 126) {
+            header.put((byte) length);
+        } else if (length <= 0xFFFF) {
+            header.put((byte) 126).putShort((short) length);
+        } else {
+            header.put((byte) 127).putLong(length);
+        }
+        queueWrite(header.flip());
+        if (length > 0) {
+            queueWrite(payload);
+        }
+    }
+
+    /**
+     * Appends bytes to the socket's pending output
+     * @param data the bytes to write
+     */
+    private void queueWrite(ByteBuffer data) {
+        if (pendingWrites == null) {
+            pendingWrites = new ArrayDeque<>();
+        }
+        pendingWrites.add(data);
+    }
+
+    /**
+     * Writes as much pending output as the socket accepts in gathering writes, waiting for write
+     * readiness if the socket's send buffer is full and draining the PlayerHandler's queue again
+     * once it has emptied
+     */
+    private void writePending() {
+        if (pendingWrites == null) {
+            return;
+        }
+        ByteBuffer[] batch = eventLoop.writeBatch();
+        try {
+            while (!pendingWrites.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer pending : pendingWrites) {
+                    batch[count++] = pending;
+                    if (count == batch.length) {
+                        break;
+                    }
+                }
+                channel.write(batch, 0, count);
+                boolean batchWritten = !batch[count - 1].hasRemaining();
+                Arrays.fill(batch, 0, count, null);
+                while (!pendingWrites.isEmpty() && !pendingWrites.peek().hasRemaining()) {
+                    pendingWrites.poll();
+                }
+                if (!batchWritten) {
+                    // The socket is full, continue when the Selector reports it writable
+                    writeBlocked = true;
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            pendingWrites = null;
+            key.interestOps(SelectionKey.OP_READ);
+            if (closeAfterFlush) {
+                close();
+            } else if (writeBlocked) {
+                // The backlog has cleared, drain whatever queued up while the socket was full
+                writeBlocked = false;
+                outboundReady();
+            }
+        } catch (IOException e) {
+            Arrays.fill(batch, null);
+            close();
+        }
+    }
+
+    /**
+     * Closes the socket and tells the PlayerHandler that its client has gone.
+     * A close frame is sent first if the server is the one closing and nothing else is pending.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (handshakeComplete && !closeAfterFlush && pendingWrites == null) {
+            try {
+                channel.write(ByteBuffer.wrap(new byte[]{(byte) (0x80 | OPCODE_CLOSE), 2,
+                        (byte) (STATUS_NORMAL >> 8), (byte) STATUS_NORMAL}));
+            } catch (IOException ignored) {
+                // The client is unreachable, closing the socket is all that is left
+            }
+        }
+        closed = true;
+        partialFrame = null;
+        fragmentedMessage = null;
+        outboundMessage = null;
+        pendingWrites = null;
+        key.cancel();
+        NioEventLoop.closeQuietly(channel);
+        if (playerHandler != null) {
+            playerHandler.handleDisconnect();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package server.player;
+
+import server.utility.ThreadMessage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The transport a {@link PlayerHandler} uses to reach its client when it does not own a
+ * blocking {@link java.net.Socket} and its own threads.
+ * <p>
+ * Implementations are driven by a shared event loop: the PlayerHandler is told about inbound
+ * messages by the transport, and tells the transport when outbound messages are waiting
+ * through {@link #outboundReady()}. {@link #write(ByteBuffer)} and {@link #flush()} are only
+ * called from the transport's own thread while it drains the PlayerHandler's queue.
+ */
+public interface ClientConnection {
+
+    /**
+     * Signals that the PlayerHandler's outbound queue has messages waiting.
+     * May be called from any thread; the transport schedules a drain on its own thread.
+     */
+    void outboundReady();
+
+    /**
+     * Checks whether the transport can take more output right now.
+     * Transports with their own flow control, or whose socket is full, return false to pause
+     * draining until they signal {@link #outboundReady()} again, so messages wait in the
+     * PlayerHandler's bounded queue rather than in the transport.
+     * @return true if another message may be written
+     */
+    default boolean isWritable() {
+        return true;
+    }
+
+    /**
+     * Hands a message to an in-process client as it is, skipping encoding altogether.
+     * Called from the same thread as {@link #write(ByteBuffer)}.
+     * @param message the message to send
+     * @return true if the transport took the message, false if it must be encoded and written
+     */
+    default boolean deliver(ThreadMessage<?> message) {
+        return false;
+    }
+
+    /**
+     * Appends encoded bytes to the connection's pending output.
+     * @param data the bytes to send, the buffer must not be modified afterwards
+     */
+    void write(ByteBuffer data);
+
+    /**
+     * Pushes all pending output towards the client.
+     */
+    void flush();
+
+    /**
+     * Closes the connection to the client.
+     */
+    void close();
+}
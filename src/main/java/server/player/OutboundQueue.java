@@ -0,0 +1,309 @@
+package server.player;
+
+import server.utility.MessageType;
+import server.utility.ThreadMessage;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A bounded queue of messages waiting to be sent to one client.
+ * <p>
+ * Producers such as game sessions never block on it. Until the queue is full every message is
+ * queued in order. What happens to a message that arrives while it is full depends on its
+ * {@link OverflowPolicy}:
+ * <ul>
+ *   <li>{@link OverflowPolicy#COALESCE}: game state updates and turn results collapse every
+ *       game state message still waiting into one full snapshot followed by the latest turn
+ *       result, so a slow client skips straight to the current board</li>
+ *   <li>{@link OverflowPolicy#DROP}: advisory messages are discarded</li>
+ *   <li>{@link OverflowPolicy#DISCONNECT}: everything else is refused, and the queue is marked
+ *       as overflowed so the client can be disconnected</li>
+ * </ul>
+ * Depth and drop counters are kept per queue so slow connections can be identified.
+ */
+public class OutboundQueue {
+
+    /**
+     * What to do with a message that arrives for a client that has fallen behind
+     */
+    public enum OverflowPolicy {
+        /**
+         * Collapses the waiting game state messages into the latest snapshot and turn result
+         */
+        COALESCE,
+
+        /**
+         * Discarded if the queue is full
+         */
+        DROP,
+
+        /**
+         * Overflows the queue if it is full
+         */
+        DISCONNECT
+    }
+
+    private final ArrayDeque<ThreadMessage<?>> messages;
+    private final int capacity;
+    // Used instead of synchronized so virtual threads waiting in take() do not pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private boolean overflowed;
+    private boolean closed;
+    private int peakDepth;
+    private long droppedCount;
+    private long coalescedCount;
+
+    /**
+     * Constructs a new OutboundQueue
+     * @param capacity the most messages that may wait for the client before it is considered too slow
+     */
+    public OutboundQueue(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+        this.messages = new ArrayDeque<>(Math.min(this.capacity, 16));
+    }
+
+    /**
+     * Chooses the overflow policy for a message type
+     * @param type the type of the message being queued
+     * @return the policy applied to messages of that type
+     */
+    public static OverflowPolicy policyFor(MessageType type) {
+        return switch (type) {
+            case GAME_STATE_UPDATE, TURN_RESULT -> OverflowPolicy.COALESCE;
+            case NOT_YOUR_TURN, HEARTBEAT -> OverflowPolicy.DROP;
+            default -> OverflowPolicy.DISCONNECT;
+        };
+    }
+
+    /**
+     * Queues a message without blocking
+     * @param message the message to queue
+     * @return false if the queue has overflowed and the client should be disconnected
+     */
+    public boolean offer(ThreadMessage<?> message) {
+        return offer(message, null);
+    }
+
+    /**
+     * Queues a message without blocking, with a way to bring the client up to date should the
+     * message find the queue full. A turn result's delta only applies to the board before it,
+     * so when the turn results waiting ahead of it are collapsed it is preceded by a snapshot.
+     * @param message the message to queue
+     * @param snapshot supplies a full game state at the version the message leaves the board in,
+     *                 called at most once and only if the queue is full, or null if there is none
+     * @return false if the queue has overflowed and the client should be disconnected
+     */
+    public boolean offer(ThreadMessage<?> message, Supplier<? extends ThreadMessage<?>> snapshot) {
+        lock.lock();
+        try {
+            if (overflowed) {
+                droppedCount++;
+                return false;
+            }
+            if (closed) {
+                // The client has gone, there is nobody left to send to
+                droppedCount++;
+                return true;
+            }
+            OverflowPolicy policy = policyFor(message.getType());
+            ThreadMessage<?> latestResult = null;
+            if (policy == OverflowPolicy.COALESCE && messages.size() >= capacity) {
+                latestResult = removeGameState();
+                if (message.getType() == MessageType.TURN_RESULT) {
+                    // The new result is the latest, it only needs a snapshot in front of it
+                    latestResult = null;
+                    if (snapshot != null && messages.size() + 2 <= capacity) {
+                        messages.addLast(snapshot.get());
+                    }
+                }
+            }
+            if (messages.size() >= capacity) {
+                droppedCount++;
+                if (policy == OverflowPolicy.DROP) {
+                    return true;
+                }
+                overflowed = true;
+                // Wake the sending thread so it can close the connection
+                notEmpty.signalAll();
+                return false;
+            }
+            messages.addLast(message);
+            if (latestResult != null && messages.size() < capacity) {
+                // Still needed after the new snapshot for whose turn it is and whether the game is over
+                messages.addLast(latestResult);
+                coalescedCount--;
+            }
+            peakDepth = Math.max(peakDepth, messages.size());
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every waiting game state update and turn result, which a newer snapshot or turn
+     * result makes obsolete. Must be called while holding the lock.
+     * @return the latest turn result removed, or null if none was waiting
+     */
+    private ThreadMessage<?> removeGameState() {
+        ThreadMessage<?> latestResult = null;
+        Iterator<ThreadMessage<?>> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            ThreadMessage<?> queued = iterator.next();
+            if (policyFor(queued.getType()) == OverflowPolicy.COALESCE) {
+                if (queued.getType() == MessageType.TURN_RESULT) {
+                    latestResult = queued;
+                }
+                iterator.remove();
+                coalescedCount++;
+            }
+        }
+        return latestResult;
+    }
+
+    /**
+     * Removes the next message without waiting
+     * @return the next message, or null if none is waiting or the queue has overflowed
+     */
+    public ThreadMessage<?> poll() {
+        lock.lock();
+        try {
+            return overflowed ? null : messages.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the next message, waiting for one to arrive
+     * @return the next message, or null once the queue has overflowed or been closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ThreadMessage<?> take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (messages.isEmpty() && !overflowed && !closed) {
+                notEmpty.await();
+            }
+            return overflowed || closed ? null : messages.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the next message, waiting up to the given time for one to arrive
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the next message, or null if none arrived in time or the queue has overflowed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ThreadMessage<?> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (messages.isEmpty() && !overflowed && !closed && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return overflowed || closed ? null : messages.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the queue once the client has disconnected.
+     * Waiting messages are discarded, later offers are dropped and any thread waiting in
+     * {@link #take()} is woken with null.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            messages.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the queue has overflowed
+     * @return true once a message has been refused because the client fell too far behind
+     */
+    public boolean isOverflowed() {
+        lock.lock();
+        try {
+            return overflowed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of messages waiting to be sent
+     * @return the current queue depth
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return messages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the most messages that may wait before the client is considered too slow
+     * @return the queue's capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the deepest the queue has been
+     * @return the peak queue depth
+     */
+    public int getPeakDepth() {
+        lock.lock();
+        try {
+            return peakDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of messages discarded because the queue was full or had overflowed
+     * @return the dropped message count
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of waiting messages collapsed into a newer game state
+     * @return the coalesced message count
+     */
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalescedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,29 +1,68 @@
 package server.player;
 
+import server.management.Mailbox;
 import server.profile.Profile;
+import server.utility.InboundMessage;
+import server.utility.LatencyTracker;
+import server.utility.MessageDecoder;
+import server.utility.MessageEncoder;
+import server.utility.MessageType;
+import server.utility.ServerConfig;
+import server.utility.SharedFrame;
 import server.utility.ThreadMessage;
+import server.utility.TimingWheel;
+import server.utility.WireFormat;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
 import java.net.Socket;
-import java.sql.SQLException;
-import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import static server.utility.ServerLogger.logError;
+import static server.utility.ServerLogger.logInfo;
 
 public class PlayerHandler {
+    // The most messages that may wait for a client before it is disconnected as too slow
+    private static final int OUTBOUND_CAPACITY = ServerConfig.getInt("outbound.capacity", 256);
+    // The most queued messages written to the client before the output is flushed
+    private static final int MAX_BATCH = Math.max(ServerConfig.getInt("outbound.maxBatch", 64), 1);
+    // How long a thread-per-connection writer waits for more messages before flushing a batch
+    private static final long FLUSH_WINDOW_NANOS = TimeUnit.MICROSECONDS.toNanos(ServerConfig.getLong("outbound.flushWindowMicros", 0));
+    // How often an idle client is sent a heartbeat, 0 to disable liveness checks
+    private static final long HEARTBEAT_MILLIS = ServerConfig.getLong("connection.heartbeatMillis", 15_000);
+    // How long a client may send nothing before it is disconnected
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("connection.idleTimeoutMillis", 45_000));
     private final Socket clientSocket;
-    // todo: erm this man
-    private final BlockingQueue<ThreadMessage> queue;
+    private final ClientConnection connection;
+    private final OutboundQueue queue;
+    // Set once the client has been disconnected for falling behind
+    private final AtomicBoolean evicted = new AtomicBoolean();
     private final Profile profile;
-    private boolean running;
-    private BufferedReader bufferedReader;
-    private PrintWriter printWriter;
-    private Thread gameSessionManagerThread = null;
-    private final Object gameSessionLock = new Object();
+    private volatile boolean running;
+    // Set once the client's disconnect has been handled
+    private final AtomicBoolean disconnected = new AtomicBoolean();
+    // Set when another thread needs an event-loop connection closed
+    private volatile boolean closeRequested;
+    // When the client last sent anything, checked by the liveness timer
+    private volatile long lastReceivedNanos = System.nanoTime();
+    private volatile TimingWheel.Timeout livenessCheck;
+    // Run once when the client disconnects, set by whoever created the PlayerHandler
+    private volatile Runnable disconnectCallback;
+    private InputStream inputStream;
+    private BufferedOutputStream outputStream;
+    // Negotiated from the first byte the client sends, binary until then
+    private volatile WireFormat wireFormat = WireFormat.BINARY;
+    // Reused for every message received, only touched by the thread reading from the client
+    private final InboundMessage inbound = new InboundMessage();
+    // Checked for every message received, before it is routed
+    private final RateLimiter rateLimiter = new RateLimiter();
+    // The inbox of the game session the player is in, null while not in a game
+    private final AtomicReference<Mailbox> session = new AtomicReference<>();
     private Thread mainThread = null;
 
     /**
@@ -51,19 +90,29 @@ public class PlayerHandler {
     }
 
     /**
-     * Set the Thread of the GameSessionManager
-     * @param thread the new GameSessionManagerThread
+     * Bind the player to the inbox of the game session they have joined.
+     * Every in-game message the player sends is delivered straight to it, with no lookup.
+     * @param session the session's inbox
      */
-    public synchronized void setGameSessionManagerThread(Thread thread) {
-        //TODO: this should be the session id, because that's how we lookup using the session registry.
-        synchronized (gameSessionLock) {
-            // Update the gameSessionManagerThread then notify gameSessionLock
-            gameSessionManagerThread = thread;
-            if (thread != null) {
-                // If the thread is not null, notifyAll
-                gameSessionLock.notifyAll();
-            }
-        }
+    public void bindSession(Mailbox session) {
+        this.session.set(session);
+    }
+
+    /**
+     * Unbind the player from a game session that has ended, unless they have already joined another one
+     * @param session the inbox of the session that has ended
+     * @return true if the player was still bound to the session
+     */
+    public boolean unbindSession(Mailbox session) {
+        return this.session.compareAndSet(session, null);
+    }
+
+    /**
+     * Get the inbox of the game session the player is in
+     * @return the session's inbox, or null while not in a game
+     */
+    public Mailbox getSession() {
+        return session.get();
     }
 
     /**
@@ -109,15 +158,176 @@ public class PlayerHandler {
      */
     private void disconnectPlayer() {}
 
+    /**
+     * Queues a message for delivery to the client without ever blocking the caller.
+     * Event-loop transports are notified so they can drain the queue on their own thread.
+     * A client that lets its queue overflow is disconnected.
+     * @param message the message to send
+     */
+    public void send(ThreadMessage<?> message) {
+        enqueue(message);
+        flushOutbound();
+    }
+
+    /**
+     * Queues a message without notifying an event-loop transport, for a caller queueing several
+     * messages that will call {@link #flushOutbound()} once afterwards.
+     * A client that lets its queue overflow is disconnected.
+     * @param message the message to send
+     */
+    public void enqueue(ThreadMessage<?> message) {
+        enqueue(message, null);
+    }
+
+    /**
+     * Queues a turn result without notifying an event-loop transport. Should the client have
+     * fallen so far behind that its queue is full, the game state messages still waiting are
+     * collapsed into a snapshot followed by this result, see {@link OutboundQueue}.
+     * A client that lets its queue overflow is disconnected.
+     * @param message the message to send
+     * @param snapshots builds the player's full game state message, only called if the queue is full
+     */
+    public void enqueue(ThreadMessage<?> message, Function<PlayerHandler, ? extends ThreadMessage<?>> snapshots) {
+        // Stamped before it is queued, after that it belongs to the thread draining the queue
+        LatencyTracker.stamp(message, LatencyTracker.Hop.OUTBOUND_ENQUEUED);
+        boolean queued = queue.offer(message, snapshots == null ? null : () -> snapshots.apply(this));
+        if (!queued && evicted.compareAndSet(false, true)) {
+            logError("PlayerHandler: Disconnecting slow client, outbound queue overflowed at", queue.getCapacity(), "messages.");
+            if (clientSocket != null) {
+                closeSocket();
+            }
+        }
+    }
+
+    /**
+     * Notifies an event-loop transport that queued messages are waiting.
+     * The PlayerHandler's own thread needs no notification, it wakes as soon as a message is queued.
+     */
+    public void flushOutbound() {
+        if (connection != null) {
+            // Also wakes the event loop to close the connection after an overflow
+            connection.outboundReady();
+        }
+    }
+
+    /**
+     * Sends every message currently waiting in the queue to the client.
+     * Called by the transport's event loop when the PlayerHandler has no thread of its own.
+     * Messages are written in batches and the transport flushes whatever remains afterwards.
+     * Draining pauses while the transport is not writable, for example while its socket is full,
+     * leaving the messages in the bounded queue; the transport calls {@link ClientConnection#outboundReady()}
+     * once it can take more.
+     */
+    public void drainOutbound() {
+        if (queue.isOverflowed() || closeRequested) {
+            connection.close();
+            return;
+        }
+        int batched = 0;
+        ThreadMessage<?> threadMessage;
+        while (connection.isWritable() && (threadMessage = queue.poll()) != null) {
+            sendToClient(threadMessage);
+            if (++batched == MAX_BATCH) {
+                connection.flush();
+                batched = 0;
+            }
+        }
+    }
+
+    /**
+     * Writes a message and whatever else is queued behind it to the client, then flushes once.
+     * Called by the PlayerHandler's own thread, which waits up to the flush window for more
+     * messages so a burst such as a final game state and its result leaves in one write.
+     * @param first the message that started the batch
+     * @throws InterruptedException if interrupted while waiting for more messages
+     */
+    private void sendBatch(ThreadMessage<?> first) throws InterruptedException {
+        sendToClient(first);
+        long deadline = System.nanoTime() + FLUSH_WINDOW_NANOS;
+        for (int batched = 1; batched < MAX_BATCH && running; batched++) {
+            ThreadMessage<?> next = FLUSH_WINDOW_NANOS > 0
+                    ? queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    : queue.poll();
+            if (next == null) {
+                break;
+            }
+            sendToClient(next);
+        }
+        try {
+            outputStream.flush();
+        } catch (IOException e) {
+            handleDisconnect();
+        }
+    }
+
+    /**
+     * Get the queue of messages waiting to be sent to the client, for its depth and drop counters
+     * @return the PlayerHandler's outbound queue
+     */
+    public OutboundQueue getOutboundQueue() {
+        return queue;
+    }
+
+    /**
+     * Closes the client's socket, which also ends the PlayerHandlerListener's blocking read
+     */
+    private void closeSocket() {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            logError("PlayerHandler: Failure to close client socket:", e.toString());
+        }
+    }
+
+    /**
+     * Set the wire format negotiated with the client
+     * @param wireFormat the format used for every message sent to the client
+     */
+    public void setWireFormat(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
+    }
+
     // todo: evan made this
-    private void sendToClient(ThreadMessage message) {
+    // Writes without flushing, the caller flushes once its batch is written
+    private void sendToClient(ThreadMessage<?> message) {
+        if (!running) {
+            return;
+        }
+        if (connection != null && connection.deliver(message)) {
+            // An in-process client, nothing to encode
+            return;
+        }
         try {
-            // String jsonString = JsonConverter.toJson(message.getContent());
-            // printWriter.println(jsonString);
-            printWriter.flush();
+            if (message.getData() instanceof SharedFrame.Delivery delivery) {
+                // Pre-encoded broadcast, only the recipient's suffix is encoded here
+                writeToClient(delivery.frame().shared(wireFormat));
+                writeToClient(delivery.frame().suffix(wireFormat, delivery.suffix()));
+            } else if (message.getData() instanceof SharedFrame frame) {
+                // Pre-encoded broadcast with nothing recipient-specific
+                writeToClient(frame.shared(wireFormat));
+            } else {
+                // Encode in the client's wire format then send it to the client
+                writeToClient(MessageEncoder.encode(message, wireFormat));
+            }
+            LatencyTracker.stamp(message, LatencyTracker.Hop.WRITTEN);
         } catch (IllegalArgumentException e) {
             logError("PlayerHandler: " + this.getProfile().getUsername() + " could not send message to client.");
             System.out.println(e.getMessage());
+        } catch (IOException e) {
+            handleDisconnect();
+        }
+    }
+
+    /**
+     * Writes encoded bytes to the client's connection without flushing
+     * @param encoded the bytes to write
+     * @throws IOException if writing to the socket fails
+     */
+    private void writeToClient(ByteBuffer encoded) throws IOException {
+        if (connection != null) {
+            connection.write(encoded);
+        } else {
+            outputStream.write(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
         }
     }
 
@@ -125,33 +335,67 @@ public class PlayerHandler {
      * Constructs a new PlayerHandler to manage communication with a connected client.
      *
      * @param clientSocket the socket used to communicate with the client
-     * @param queue the message queue for handling communication between threads
      * @param profile the player's profile associated with this connection
      */
-    public PlayerHandler(Socket clientSocket, BlockingQueue<ThreadMessage> queue, Profile profile) {
+    public PlayerHandler(Socket clientSocket, Profile profile) {
         this.clientSocket = clientSocket;
+        this.connection = null;
         //Create a dedicated queue for messages related to this player's thread.
-        this.queue = queue;
+        this.queue = new OutboundQueue(OUTBOUND_CAPACITY);
         this.profile = profile;
         this.running = true;
-        // Initialize the BufferedReader and BufferedWriter
+        // Initialize the buffered input and output streams
         try {
-            this.bufferedReader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            this.printWriter = new PrintWriter(clientSocket.getOutputStream(), true);
+            this.inputStream = clientSocket.getInputStream();
+            this.outputStream = new BufferedOutputStream(clientSocket.getOutputStream());
         } catch (IOException e) {
-            logError("PlayerHandler: Failure to initialize PlayerHandler BufferedReader/BufferedWriter:", e.toString());
+            logError("PlayerHandler: Failure to initialize PlayerHandler input/output streams:", e.toString());
         }
     }
 
+    /**
+     * Constructs a new PlayerHandler whose client is reached through an event-loop transport
+     *
+     * @param connection the transport used to communicate with the client
+     * @param profile the player's profile associated with this connection
+     */
+    private PlayerHandler(ClientConnection connection, Profile profile) {
+        this.clientSocket = null;
+        this.connection = connection;
+        this.queue = new OutboundQueue(OUTBOUND_CAPACITY);
+        this.profile = profile;
+        this.running = true;
+    }
+
+    /**
+     * Creates a PlayerHandler whose client is reached through an event-loop transport, and starts
+     * checking that the client is still alive.
+     * <p>
+     * No threads are started for this PlayerHandler: the transport calls
+     * {@link #handleFrame(ByteBuffer)} or {@link #handleJsonFrame(ByteBuffer)} for inbound
+     * messages and {@link #drainOutbound()}
+     * when outbound messages are waiting, so {@link #run()} must not be called.
+     *
+     * @param connection the transport used to communicate with the client
+     * @param profile the player's profile associated with this connection
+     * @return the new PlayerHandler
+     */
+    public static PlayerHandler connect(ClientConnection connection, Profile profile) {
+        PlayerHandler playerHandler = new PlayerHandler(connection, profile);
+        playerHandler.scheduleLivenessCheck();
+        return playerHandler;
+    }
+
     /**
      * The main thread execution method for the PlayerHandler.
      * Listens to the blocking queue for messages and sends them to the client.
-     * Also starts a listener thread to handle incoming messages from the client,
-     * and sets the player's online status to true when the session begins.
+     * Also starts a listener thread to handle incoming messages from the client and the checks
+     * that the client is still alive, and sets the player's online status to true when the session begins.
      */
     public void run() {
         // Assign the mainThread to the thread created by ConnectionManager
         mainThread = Thread.currentThread();
+        scheduleLivenessCheck();
         // Start the PlayerHandlerListener thread
         PlayerHandlerListener playerHandlerListener = new PlayerHandlerListener();
         Thread playerHandlerListenerThread = Thread.ofVirtual().start(playerHandlerListener);
@@ -165,73 +409,275 @@ public class PlayerHandler {
         while (running) {
             try {
                 // Take a message from the blocking queue
-                ThreadMessage threadMessage = queue.take();
-                // Convert to json formatting then send it to the client
-                // printWriter.println(toJson(threadMessage.getContent()));
+                ThreadMessage<?> threadMessage = queue.take();
+                if (threadMessage == null) {
+                    // The queue overflowed and the socket has been closed
+                    break;
+                }
+                // Encode the message, along with any queued behind it, then send them to the client
+                sendBatch(threadMessage);
             } catch (InterruptedException e) {
                 logError("PlayerHandler: Failure to take message blocking queue for PlayerHandler:", e.toString());
             }
         }
     }
 
+    /**
+     * Processes one JSON message received from the client.
+     * Called by the PlayerHandlerListener thread or by an event-loop transport.
+     * @param line a buffer whose remaining bytes are the JSON object, without its trailing newline
+     */
+    public void handleJsonFrame(ByteBuffer line) {
+        lastReceivedNanos = System.nanoTime();
+        try {
+            MessageDecoder.decodeJsonInto(line, inbound);
+            routeIfWithinLimit(inbound);
+        } catch (IllegalArgumentException e) {
+            // TODO: Should this be handled better? wait maybe send back a message?
+            logError("PlayerHandler: Failure to parse message:", e.toString());
+        }
+    }
+
+    /**
+     * Processes one binary frame received from the client.
+     * Called by the PlayerHandlerListener thread or by an event-loop transport.
+     * @param frame a buffer positioned at the start of a complete frame, left positioned after it
+     */
+    public void handleFrame(ByteBuffer frame) {
+        lastReceivedNanos = System.nanoTime();
+        try {
+            MessageDecoder.decodeInto(frame, inbound);
+            routeIfWithinLimit(inbound);
+        } catch (IllegalArgumentException e) {
+            logError("PlayerHandler: Failure to parse message:", e.toString());
+        }
+    }
+
+    /**
+     * Processes one message from an in-process client, such as a bot on a loopback transport,
+     * without decoding anything. Must only be called by the client's single sending thread.
+     * @param message the message the client sent
+     */
+    public void handleMessage(ThreadMessage<?> message) {
+        lastReceivedNanos = System.nanoTime();
+        try {
+            inbound.load(message);
+            routeIfWithinLimit(inbound);
+        } catch (IllegalArgumentException e) {
+            logError("PlayerHandler: Failure to load message:", e.toString());
+        }
+    }
+
+    /**
+     * Routes a message unless the client has exceeded its rate limit for the message's type.
+     * A client that keeps sending over its limit is disconnected.
+     * @param message the message received from the client
+     */
+    private void routeIfWithinLimit(InboundMessage message) {
+        if (rateLimiter.tryAcquire(message.getType())) {
+            routeMessage(message);
+        } else if (rateLimiter.shouldDisconnect() && running) {
+            logError("PlayerHandler: Disconnecting client for exceeding its rate limit, dropped", rateLimiter.getDroppedCount(), "messages.");
+            if (connection != null) {
+                connection.close();
+            } else {
+                running = false;
+                closeSocket();
+            }
+        }
+    }
+
+    /**
+     * Get the rate limiter applied to messages from the client, for its drop counter
+     * @return the PlayerHandler's rate limiter
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Schedules the next liveness check on the shared timing wheel
+     */
+    private void scheduleLivenessCheck() {
+        if (HEARTBEAT_MILLIS > 0 && running) {
+            livenessCheck = TimingWheel.getInstance().schedule(this::checkLiveness, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs on the timing wheel: disconnects a client that has been silent for longer than the
+     * idle timeout, and sends a heartbeat to one that has been silent for a heartbeat interval.
+     */
+    private void checkLiveness() {
+        if (!running) {
+            return;
+        }
+        long idleNanos = System.nanoTime() - lastReceivedNanos;
+        if (idleNanos >= IDLE_TIMEOUT_NANOS) {
+            logInfo("PlayerHandler: Disconnecting client idle for", TimeUnit.NANOSECONDS.toMillis(idleNanos), "ms.");
+            requestClose();
+            return;
+        }
+        if (idleNanos >= TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_MILLIS)) {
+            send(new ThreadMessage<Void>(MessageType.HEARTBEAT, null));
+        }
+        scheduleLivenessCheck();
+    }
+
+    /**
+     * Closes the client's connection from a thread other than the one reading it
+     */
+    private void requestClose() {
+        if (connection != null) {
+            // The event loop closes the connection when it next drains the queue
+            closeRequested = true;
+            connection.outboundReady();
+        } else {
+            running = false;
+            closeSocket();
+        }
+    }
+
+    /**
+     * Called when the client's connection has closed, by an event-loop transport or by the
+     * PlayerHandler's own threads. Only the first call has any effect.
+     * Stops the liveness checks, wakes the sending thread, tells the player's game session and
+     * runs the disconnect callback.
+     */
+    public void handleDisconnect() {
+        if (!disconnected.compareAndSet(false, true)) {
+            return;
+        }
+        running = false;
+        queue.close();
+        if (clientSocket != null) {
+            closeSocket();
+        }
+        TimingWheel.Timeout check = livenessCheck;
+        if (check != null) {
+            check.cancel();
+        }
+        Mailbox current = session.get();
+        if (current != null) {
+            current.deliver(new ThreadMessage<Void>(MessageType.DISCONNECT, this, null));
+        }
+        disconnectPlayer();
+        Runnable callback = disconnectCallback;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Set a task to run once the client disconnects, such as freeing its connection slot
+     * @param callback the task to run
+     */
+    public void setDisconnectCallback(Runnable callback) {
+        this.disconnectCallback = callback;
+    }
+
     /**
      * A listener class that runs in its own thread to handle incoming messages from the client.
-     * It processes JSON-formatted messages and routes them to the appropriate system components,
-     * such as the matchmaking queue or the game session manager.
+     * It detects the client's wire format from the first byte received, then decodes
+     * length-prefixed binary frames or JSON lines in place from a single reused buffer and hands
+     * each one to the PlayerHandler.
      */
     private class PlayerHandlerListener implements Runnable {
+        // Reused for every read, large enough for the biggest frame or JSON line and its terminator
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(WireFormat.LENGTH_PREFIX_SIZE + WireFormat.MAX_FRAME_LENGTH + 2);
+
         /**
          * The function that the thread runs, listens to the input from the client
          */
         public void run() {
-            while (running) {
-                try {
-                    // Read the json string from the server
-                    String message = bufferedReader.readLine();
-
-                    //If message == null, then that means the player has disconnected and this thread should be terminated.
-                    if (message == null) {
-                        // Disconnection
-                        disconnectPlayer();
+            boolean formatDetected = false;
+            try {
+                while (running) {
+                    int count = inputStream.read(readBuffer.array(), readBuffer.position(), readBuffer.remaining());
+                    //If count < 0, then that means the player has disconnected and this thread should be terminated.
+                    if (count < 0) {
                         break;
                     }
-
-                    // Convert the json formatting and send it to the GameSessionManager
-                    try {
-                        Map<String, Object> jsonMap = null; // fromJson(message);
-                        // TODO: TEMPORARY, CHECK IF TYPE IS ENQUEUE
-                        if (jsonMap.containsKey("type") && jsonMap.get("type").equals("enqueue")) {
-                            if (jsonMap.containsKey("game-type") && jsonMap.get("game-type").equals(0)) {
-                                // ServerController.enqueuePlayer(PlayerHandler.this, 0);
-                            } else if (jsonMap.containsKey("game-type") && jsonMap.get("game-type").equals(1)) {
-                                // ServerController.enqueuePlayer(PlayerHandler.this, 1);
-                            } else if (jsonMap.containsKey("game-type") && jsonMap.get("game-type").equals(2)) {
-                                // ServerController.enqueuePlayer(PlayerHandler.this, 2);
-                            } else {
-                                logError("PlayerHandler: Unknown game-type: " + jsonMap.get("game-type"));
-                            }
-                        }
-                        // TODO: this threadMessage has to be like "sorted" to where it needs to go
-                        // ThreadMessage threadMessage = new ThreadMessage(MessageType.NONE, mainThread, jsonMap);
-                        // TODO: this code should only run if we are sending information to the gameSessionManager
-                        routeMessage(null); // threadMessage);
-                    } catch (IllegalArgumentException e) {
-                        // TODO: Should this be handled better? wait maybe send back a message?
-                        logError("PlayerHandler: Failure to parse message:", e.toString());
-                    } catch (SQLException e) {
-                        throw new RuntimeException(e);
+                    readBuffer.position(readBuffer.position() + count);
+                    readBuffer.flip();
+                    if (!formatDetected && readBuffer.hasRemaining()) {
+                        // The first byte chooses the wire format
+                        setWireFormat(WireFormat.detect(readBuffer.get(0)));
+                        formatDetected = true;
+                    }
+                    if (wireFormat == WireFormat.JSON) {
+                        deliverJsonFrames();
+                    } else {
+                        deliverFrames();
+                    }
+                    // Keep the start of an incomplete frame for the next read
+                    readBuffer.compact();
+                    if (!readBuffer.hasRemaining()) {
+                        throw new IllegalArgumentException("Message exceeds the maximum frame length");
                     }
-                } catch (IOException e) {
-                    disconnectPlayer();
-                    break;
                 }
-//                catch (InterruptedException e) {
-//                    // just gotta say this should be passed in through some way man, maybe a function? idk doesn't matter
-//                    log("PlayerHandler: Never received the thread for the GameSessionManager:", e.toString());
-//                }
+            } catch (IOException | IllegalArgumentException e) {
+                logError("PlayerHandler: Closing connection after read failure:", e.toString());
+            }
+            // Disconnection
+            handleDisconnect();
+        }
+
+        /**
+         * Hands every complete binary frame in the read buffer to the PlayerHandler
+         */
+        private void deliverFrames() {
+            int frameLength;
+            while (running && (frameLength = MessageDecoder.frameLength(readBuffer)) > 0) {
+                int start = readBuffer.position();
+                handleFrame(readBuffer);
+                readBuffer.position(start + frameLength);
+            }
+        }
+
+        /**
+         * Hands every newline-terminated JSON line in the read buffer to the PlayerHandler
+         */
+        private void deliverJsonFrames() {
+            int limit = readBuffer.limit();
+            for (int i = readBuffer.position(); i < limit && running; i++) {
+                if (readBuffer.get(i) == '\n') {
+                    int end = i > readBuffer.position() && readBuffer.get(i - 1) == '\r' ? i - 1 : i;
+                    readBuffer.limit(end);
+                    handleJsonFrame(readBuffer);
+                    readBuffer.limit(limit);
+                    readBuffer.position(i + 1);
+                }
             }
         }
     }
 
-    private void routeMessage(ThreadMessage threadMessage) throws SQLException, IOException {}
+    /**
+     * Routes a decoded client message to the appropriate system component.
+     * The message is only valid during this call, it must be copied with
+     * {@link InboundMessage#toThreadMessage(PlayerHandler)} before being handed to another thread.
+     * @param message the message received from the client
+     */
+    private void routeMessage(InboundMessage message) {
+        switch (message.getType()) {
+            case ENQUEUE -> {
+                // ServerController.enqueuePlayer(PlayerHandler.this, message.getGameType());
+            }
+            case DEQUEUE -> {
+                // ServerController.dequeuePlayer(PlayerHandler.this, message.getGameType());
+            }
+            case HEARTBEAT -> {
+                // Nothing to route, receiving it already counts as activity
+            }
+            default -> {
+                // Everything else is for the player's game session, dropped while not in one
+                Mailbox current = session.get();
+                if (current != null) {
+                    ThreadMessage<?> copy = message.toThreadMessage(this);
+                    LatencyTracker.stamp(copy, LatencyTracker.Hop.DECODED);
+                    current.deliver(copy);
+                }
+            }
+        }
+    }
 }
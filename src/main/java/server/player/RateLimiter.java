@@ -0,0 +1,129 @@
+package server.player;
+
+import server.utility.MessageType;
+import server.utility.ServerConfig;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how fast one client may send each {@link MessageType}, checked before a message is routed.
+ * <p>
+ * Each message type has its own token bucket, refilled at {@code ratelimit.<TYPE>.perSecond}
+ * tokens a second and holding at most {@code ratelimit.<TYPE>.burst} tokens, falling back to
+ * {@code ratelimit.default.perSecond} and {@code ratelimit.default.burst}. A rate of 0 leaves the
+ * type unlimited. Buckets are kept as the time the next token is due (the generic cell rate
+ * algorithm), so a check is a clock read and a comparison with no allocation.
+ * <p>
+ * Messages over the limit are dropped. A client that has {@code ratelimit.disconnectAfter}
+ * messages in a row dropped should be disconnected. A RateLimiter belongs to the single thread
+ * reading its connection.
+ */
+public class RateLimiter {
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+
+    // Nanoseconds between tokens for each message type, 0 if the type is unlimited
+    private static final long[] INTERVAL_NANOS = new long[MESSAGE_TYPES.length];
+
+    // How far ahead of the clock a bucket's next token may be before messages are dropped
+    private static final long[] BURST_NANOS = new long[MESSAGE_TYPES.length];
+
+    private static final int DISCONNECT_AFTER = ServerConfig.getInt("ratelimit.disconnectAfter", 50);
+
+    // Totals across every connection
+    private static final LongAdder totalDropped = new LongAdder();
+    private static final LongAdder totalDisconnects = new LongAdder();
+
+    static {
+        double defaultRate = ServerConfig.getDouble("ratelimit.default.perSecond", 20);
+        int defaultBurst = ServerConfig.getInt("ratelimit.default.burst", 20);
+        for (MessageType type : MESSAGE_TYPES) {
+            double rate = ServerConfig.getDouble("ratelimit." + type.name() + ".perSecond", defaultRate);
+            int burst = Math.max(ServerConfig.getInt("ratelimit." + type.name() + ".burst", defaultBurst), 1);
+            if (rate > 0) {
+                long interval = Math.max((long) (1_000_000_000L / rate), 1);
+                INTERVAL_NANOS[type.ordinal()] = interval;
+                BURST_NANOS[type.ordinal()] = interval * (burst - 1);
+            }
+        }
+    }
+
+    // The time each message type's next token is due, indexed by ordinal
+    private final long[] nextTokenNanos = new long[MESSAGE_TYPES.length];
+    // Only written by the reading thread, volatile so it can be reported from elsewhere
+    private volatile long droppedCount;
+    private int consecutiveDrops;
+
+    /**
+     * Constructs a new RateLimiter with every bucket full
+     */
+    public RateLimiter() {
+        long now = System.nanoTime();
+        for (int i = 0; i < nextTokenNanos.length; i++) {
+            nextTokenNanos[i] = now - BURST_NANOS[i];
+        }
+    }
+
+    /**
+     * Takes a token for a message about to be routed
+     * @param type the type of the message received
+     * @return true if the message is within the limit, false if it should be dropped
+     */
+    public boolean tryAcquire(MessageType type) {
+        int ordinal = type.ordinal();
+        long interval = INTERVAL_NANOS[ordinal];
+        if (interval == 0) {
+            consecutiveDrops = 0;
+            return true;
+        }
+        long now = System.nanoTime();
+        long next = Math.max(nextTokenNanos[ordinal], now);
+        if (next - now > BURST_NANOS[ordinal]) {
+            droppedCount++;
+            consecutiveDrops++;
+            totalDropped.increment();
+            return false;
+        }
+        nextTokenNanos[ordinal] = next + interval;
+        consecutiveDrops = 0;
+        return true;
+    }
+
+    /**
+     * Checks whether the client has kept sending over its limit long enough to be disconnected.
+     * Counts the disconnect the first time it returns true.
+     * @return true if the client should be disconnected
+     */
+    public boolean shouldDisconnect() {
+        if (DISCONNECT_AFTER <= 0 || consecutiveDrops < DISCONNECT_AFTER) {
+            return false;
+        }
+        if (consecutiveDrops == DISCONNECT_AFTER) {
+            totalDisconnects.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of messages dropped from this client
+     * @return the dropped message count
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Get the number of messages dropped across every client
+     * @return the total dropped message count
+     */
+    public static long getTotalDropped() {
+        return totalDropped.sum();
+    }
+
+    /**
+     * Get the number of clients disconnected for exceeding their rate limits
+     * @return the total disconnect count
+     */
+    public static long getTotalDisconnects() {
+        return totalDisconnects.sum();
+    }
+}
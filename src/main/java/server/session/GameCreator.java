@@ -72,13 +72,12 @@ public class GameCreator implements Runnable {
                     new SessionContext(gameType, gameSession, participants);
             gameSession.setContext(context);
 
-            Thread.ofVirtual()
-                    .name("gameSessionManager-" + context.getSessionID())
-                    .start(gameSession);
-
             SessionRegistry sessionReg = SessionRegistry.getInstance();
             sessionReg.register(context);
 
+            // On a virtual thread of its own or an event loop, depending on session.executor
+            gameSession.start();
+
             return true;
         } catch (Exception e) {
             // log exception
@@ -4,16 +4,28 @@ import server.game.GameController;
 import server.game.TicTacToeController;
 import server.game.ConnectFourController;
 import server.game.CheckersController;
+import server.game.GamePiece;
 
+import server.management.Mailbox;
 import server.player.PlayerHandler;
+import server.utility.GameStateDelta;
 import server.utility.GameType;
+import server.utility.LatencyTracker;
+import server.utility.MessageEncoder;
 import server.utility.MessageType;
+import server.utility.ServerConfig;
+import server.utility.SharedFrame;
 import server.utility.ThreadMessage;
+import server.utility.TimingWheel;
+import server.utility.TurnResult;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manages a game session between players.
@@ -44,8 +56,8 @@ public class GameSessionManager implements Runnable {
     /** The session context containing game and player information */
     private SessionContext context;
     
-    /** Queue for incoming messages from players */
-    private final BlockingQueue<ThreadMessage<?>> inbox;
+    /** Incoming messages from players, with control messages taken ahead of moves */
+    private final SessionInbox inbox;
     
     /** The game controller managing the specific game implementation */
     private GameController gameController;
@@ -53,12 +65,172 @@ public class GameSessionManager implements Runnable {
     /** The player who paused the game, if any */
     private PlayerHandler pausedBy;
 
+    /** Whether moves are broadcast as one turn result of the changed cells rather than full boards and notifications */
+    private static final boolean DELTA_UPDATES = ServerConfig.getBoolean("session.deltaUpdates", true);
+
+    /**
+     * How long the game stays paused after a player disconnects before the session is cancelled, 0 to cancel at once.
+     * A disconnected player cannot rejoin the session, so this only delays the cancellation.
+     */
+    private static final long DISCONNECT_GRACE_MILLIS = ServerConfig.getLong("session.disconnectGraceMillis", 0);
+
+    /** The player whose disconnect paused the game, if any */
+    private PlayerHandler disconnectedPlayer;
+
+    /** Fires when the grace period after a disconnect ends */
+    private TimingWheel.Timeout disconnectGrace;
+
+    /** The most inbox messages processed per wakeup before players' transports are woken */
+    private static final int MAX_BATCH = Math.max(ServerConfig.getInt("session.maxBatch", 256), 1);
+
+    /** Players sent messages during the current batch, whose transports still need waking */
+    private final List<PlayerHandler> pendingRecipients = new ArrayList<>(4);
+
+    /** The message being processed, which messages sent to players are stamped as caused by */
+    private ThreadMessage<?> cause;
+
+    /** Whether the message being processed has been stamped as processed yet */
+    private boolean causeProcessed;
+
+    /** Tracks the board last sent to players, used to build deltas */
+    private final GameStateTracker stateTracker = new GameStateTracker();
+
+    /** The board after the turn being broadcast, encoded the first time a player's outbound queue is full */
+    private SharedFrame turnSnapshot;
+
+    /** Builds a player's snapshot of the turn being broadcast, for outbound queues that collapse */
+    private final Function<PlayerHandler, ThreadMessage<?>> turnSnapshots = this::turnSnapshotFor;
+
+    /** The session's one inbox, bound into each player so their messages arrive without a lookup */
+    private final Mailbox mailbox = this::deliver;
+
+    /** The event loop the session runs on as an actor, null when it runs on its own thread */
+    private final SessionScheduler.SessionLoop loop;
+
+    /**
+     * Set while the session is on its loop's run queue or being processed, so it is queued at most
+     * once. Starts set, so nothing queues the session before {@link #start()}.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(true);
+
+    /**
+     * Handles one type of message taken from the inbox
+     */
+    @FunctionalInterface
+    private interface Handler {
+        /**
+         * Handles a message on the session's thread
+         * @param session the session the message was sent to
+         * @param message the message to handle
+         */
+        void handle(GameSessionManager session, ThreadMessage<?> message);
+    }
+
+    /**
+     * An entry in the dispatch table
+     * @param handler handles messages of the type
+     * @param requiresCurrentPlayer whether messages of the type are only accepted while the game is
+     *                              running, and only from the player whose turn it is
+     */
+    private record Route(Handler handler, boolean requiresCurrentPlayer) { }
+
+    /**
+     * The message types a session accepts and how each is handled.
+     * Types missing from the table, such as those only the server sends, are refused by
+     * {@link #deliver(ThreadMessage)} before they reach the inbox.
+     */
+    private static final Map<MessageType, Route> ROUTES = createRoutes();
+
     /**
      * Constructs a new game session manager.
      * Initializes the message inbox queue.
+     * In actor mode the session is also assigned the event loop it will run on.
      */
     public GameSessionManager() {
-        inbox = new LinkedBlockingQueue<>();
+        loop = SessionScheduler.isEnabled() ? SessionScheduler.getInstance().assignLoop() : null;
+        inbox = new SessionInbox();
+    }
+
+    /**
+     * Starts running the session once its context is set: on its event loop in actor mode,
+     * otherwise on a virtual thread of its own.
+     */
+    public void start() {
+        if (loop != null) {
+            // Already marked as scheduled, so this is the only place it is queued from
+            loop.submit(this);
+        } else {
+            Thread.ofVirtual()
+                    .name("gameSessionManager-" + context.getSessionID())
+                    .start(this);
+        }
+    }
+
+    /**
+     * Queues the session on its event loop, unless it is already queued or being processed.
+     * Called from any thread after a message is added to the inbox, in actor mode.
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            loop.submit(this);
+        }
+    }
+
+    /**
+     * Releases the session after its event loop has processed a batch, and queues it again if
+     * messages arrived in the meantime. Only called by the session's loop.
+     */
+    void yieldLoop() {
+        scheduled.set(false);
+        // Checked after clearing the flag, so a message that saw the flag still set is not missed
+        if (!inbox.isEmpty()) {
+            schedule();
+        }
+    }
+
+    /**
+     * Gets the session's inbox, which players are bound to while they are in the session.
+     *
+     * @return The session's mailbox
+     */
+    public Mailbox getMailbox() {
+        return mailbox;
+    }
+
+    /**
+     * Builds the dispatch table. A new message type is handled by adding its route here.
+     *
+     * @return The route for each message type a session accepts
+     */
+    private static Map<MessageType, Route> createRoutes() {
+        Map<MessageType, Route> routes = new EnumMap<>(MessageType.class);
+        // Session state changes, accepted in any state and checked by their handlers
+        routes.put(MessageType.DISCONNECT, new Route(GameSessionManager::handleDisconnect, false));
+        routes.put(MessageType.PAUSE_REQUEST, new Route(GameSessionManager::handlePauseRequest, false));
+        routes.put(MessageType.RESUME_REQUEST, new Route(GameSessionManager::handleResumeRequest, false));
+        routes.put(MessageType.RESYNC_REQUEST, new Route(GameSessionManager::handleResyncRequest, false));
+        routes.put(MessageType.SESSION_EXPIRED, new Route(GameSessionManager::handleExpired, false));
+        // Game messages
+        routes.put(MessageType.MOVE_MADE, new Route(GameSessionManager::handleMove, true));
+        return routes;
+    }
+
+    /**
+     * Queues a message for the session's game loop, in the inbox lane for its type.
+     * Messages of a type the session does not accept are dropped, as are moves from a player
+     * who already has too many waiting.
+     * May be called from any thread.
+     *
+     * @param message The message to deliver
+     */
+    public void deliver(ThreadMessage<?> message) {
+        if (!ROUTES.containsKey(message.getType())) {
+            return;
+        }
+        LatencyTracker.stamp(message, LatencyTracker.Hop.SESSION_ENQUEUED);
+        if (inbox.offer(message) && loop != null) {
+            schedule();
+        }
     }
 
     /**
@@ -81,18 +253,18 @@ public class GameSessionManager implements Runnable {
         // Initialize the appropriate game controller based on game type
         this.gameController = createGameController(context.getGameType());
         this.gameController.initializeGame();
-        
-        // Send initial game state and piece assignments to players
+
+        // Route the players' messages straight to this session
         for (PlayerHandler player : context.getParticipants()) {
-            Map<String, Object> gameInfo = new HashMap<>();
-            gameInfo.put("gameState", gameController.getGameState());
-            gameInfo.put("playerPiece", gameController.getPlayerPiece(player));
-            
-            sendMessageToPlayer(player, new ThreadMessage<Map<String, Object>>(MessageType.GAME_STATE_UPDATE, this, gameInfo));
+            player.bindSession(mailbox);
         }
         
+        // Send initial game state and piece assignments to players
+        broadcastGameState();
+        
         // Notify players about initial turn
         notifyTurnChange();
+        flushOutbound();
     }
 
     /**
@@ -111,7 +283,10 @@ public class GameSessionManager implements Runnable {
     }
 
     /**
-     * Main game loop that processes messages and manages the game session.
+     * Main game loop that processes messages and manages the game session, when the session runs
+     * on its own thread. Each wakeup drains every message waiting in the inbox, up to
+     * {@code session.maxBatch}, and processes them in order. Messages for players are queued as
+     * they are produced and their transports are only woken once the whole batch is done.
      * Handles:
      * - Message routing
      * - Turn management
@@ -125,48 +300,10 @@ public class GameSessionManager implements Runnable {
         try {
             context.setState(SessionState.RUNNING);
             
-            while (!Thread.currentThread().isInterrupted()) {
-                // Process messages from the inbox
-                ThreadMessage<?> message = inbox.take();
-                
-                // Handle session state changes
-                if (message.getType() == MessageType.DISCONNECT) {
-                    handleDisconnect(message);
-                    continue;
-                } else if (message.getType() == MessageType.PAUSE_REQUEST) {
-                    handlePauseRequest(message);
-                    continue;
-                } else if (message.getType() == MessageType.RESUME_REQUEST) {
-                    handleResumeRequest(message);
-                    continue;
-                }
-                
-                // Only process game messages if the session is running
-                if (context.getState() == SessionState.RUNNING) {
-                    // Check if the message is from the current player
-                    if (isMessageFromCurrentPlayer(message)) {
-                        // Let the game controller handle the message
-                        if (!gameController.handleMessage(message)) {
-                            // Handle invalid message
-                            sendErrorToPlayer(message.getPlayerSender(), "Invalid move");
-                        } else {
-                            // Valid move was made, broadcast updated game state
-                            broadcastGameState();
-                            
-                            // Check if game is over
-                            if (gameController.isGameOver()) {
-                                handleGameOver();
-                                break;
-                            } else {
-                                // Notify players about turn change
-                                notifyTurnChange();
-                            }
-                        }
-                    } else {
-                        // Message from wrong player - notify them
-                        sendNotYourTurnMessage(message.getPlayerSender());
-                    }
-                }
+            boolean gameOver = false;
+            while (!gameOver && !Thread.currentThread().isInterrupted() && context.getState() != SessionState.CANCELLED) {
+                // Wait for a message, then take whatever else has arrived with it
+                gameOver = processBatch(inbox.take());
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -175,55 +312,283 @@ public class GameSessionManager implements Runnable {
             // Log error
             context.setState(SessionState.CANCELLED);
         } finally {
-            // Cleanup
-            SessionRegistry.getInstance().deregister(context.getSessionID());
+            finish();
+        }
+    }
+
+    /**
+     * Processes one batch of the inbox on the session's event loop, when the session runs as an
+     * actor. The first batch also starts the game.
+     *
+     * @return true if the session is still live, false once it has ended and been cleaned up
+     */
+    boolean runBatch() {
+        boolean gameOver = false;
+        try {
+            if (context.getState() == SessionState.INITIALIZING) {
+                context.setState(SessionState.RUNNING);
+            }
+            ThreadMessage<?> message = inbox.poll();
+            if (message != null) {
+                gameOver = processBatch(message);
+            }
+        } catch (Exception e) {
+            // Log error
+            context.setState(SessionState.CANCELLED);
+        }
+        if (gameOver || context.getState() == SessionState.CANCELLED) {
+            finish();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Processes a message and whatever else has arrived with it, up to {@code session.maxBatch}
+     * messages, then wakes the transports of the players sent messages.
+     *
+     * @param message The first message of the batch
+     * @return true if the game is over
+     */
+    private boolean processBatch(ThreadMessage<?> message) {
+        boolean gameOver;
+        int processed = 0;
+        do {
+            gameOver = processMessage(message);
+        } while (!gameOver && ++processed < MAX_BATCH && context.getState() != SessionState.CANCELLED
+                && (message = inbox.poll()) != null);
+        flushOutbound();
+        return gameOver;
+    }
+
+    /**
+     * Cleans up once the session has ended: wakes the players' transports one last time,
+     * unbinds the players and removes the session from the registry.
+     */
+    private void finish() {
+        flushOutbound();
+        if (disconnectGrace != null) {
+            disconnectGrace.cancel();
+        }
+        for (PlayerHandler player : context.getParticipants()) {
+            player.unbindSession(mailbox);
         }
+        SessionRegistry.getInstance().deregister(context.getSessionID());
+    }
+
+    /**
+     * Processes one message from the inbox by looking up its route in the dispatch table.
+     * Messages that require the current player are ignored unless the game is running, and
+     * are answered with NOT_YOUR_TURN if they come from anyone else.
+     *
+     * @param message The message to process
+     * @return true if the game is over
+     */
+    private boolean processMessage(ThreadMessage<?> message) {
+        Route route = ROUTES.get(message.getType());
+        if (route.requiresCurrentPlayer()) {
+            // Only process game messages if the session is running
+            if (context.getState() != SessionState.RUNNING) {
+                return false;
+            }
+            if (message.getPlayerSender() != gameController.getCurrentPlayer()) {
+                // Message from wrong player - notify them
+                sendNotYourTurnMessage(message.getPlayerSender());
+                return false;
+            }
+        }
+        cause = message;
+        causeProcessed = false;
+        route.handler().handle(this, message);
+        markCauseProcessed();
+        cause = null;
+        return gameController.isGameOver();
+    }
+
+    /**
+     * Stamps the message being processed as processed, the first time the session sends a
+     * message because of it or once its handler returns, whichever is first.
+     */
+    private void markCauseProcessed() {
+        if (cause != null && !causeProcessed) {
+            LatencyTracker.stamp(cause, LatencyTracker.Hop.PROCESSED);
+            causeProcessed = true;
+        }
+    }
+
+    /**
+     * Handles a move from the current player.
+     * Sends every player the result of a valid move, and the mover an error otherwise.
+     *
+     * @param message The move message
+     */
+    private void handleMove(ThreadMessage<?> message) {
+        // Let the game controller handle the message
+        if (!gameController.handleMessage(message)) {
+            // Handle invalid message
+            sendErrorToPlayer(message.getPlayerSender(), "Invalid move");
+            return;
+        }
+        // Valid move was made, restart the idle timeout and send every player the result of the turn
+        context.recordMove();
+        broadcastTurnResult();
     }
 
     /**
      * Broadcasts the current game state to all players.
-     * Includes both the game state and player-specific information.
+     * The board is encoded once into a shared frame; each player's message only adds
+     * their own piece as the frame's suffix.
      */
     private void broadcastGameState() {
-        Map<String, Object> gameInfo = new HashMap<>();
-        gameInfo.put("gameState", gameController.getGameState());
-        
+        GamePiece[][] board = (GamePiece[][]) gameController.getGameState();
+        broadcastGameState(board, stateTracker.reset(board));
+    }
+
+    /**
+     * Sends every player a game state the tracker has already recorded as its baseline
+     *
+     * @param board The board to send
+     * @param version The version the tracker assigned to it
+     */
+    private void broadcastGameState(GamePiece[][] board, int version) {
+        SharedFrame gameState = MessageEncoder.encodeGameState(board, version);
+
         for (PlayerHandler player : context.getParticipants()) {
-            gameInfo.put("playerPiece", gameController.getPlayerPiece(player));
-            sendMessageToPlayer(player, new ThreadMessage<Map<String, Object>>(MessageType.GAME_STATE_UPDATE, this, gameInfo));
+            sendGameState(player, gameState);
         }
     }
 
     /**
-     * Checks if the message is from the player whose turn it is.
-     * System messages and game state updates can come from any player.
-     * Only game moves are restricted to the current player.
-     * Any player can pause the game, but only the player who paused it can resume.
-     * 
-     * @param message The message to check
-     * @return true if the message is from the current player or is a system/game state message
-     */
-    private boolean isMessageFromCurrentPlayer(ThreadMessage<?> message) {
-        return switch (message.getType()) {
-            case PAUSE_REQUEST, DISCONNECT, ERROR,
-                 GAME_PAUSED, GAME_RESUMED, GAME_WON, GAME_DRAWN,
-                 GAME_STATE_UPDATE, YOUR_TURN, OTHER_PLAYER_TURN,
-                 NOT_YOUR_TURN -> true;
-            case RESUME_REQUEST -> message.getPlayerSender() == pausedBy;
-            case MOVE_MADE -> message.getPlayerSender() == gameController.getCurrentPlayer();
-            default -> false;
-        };
+     * Sends every player the result of the last move in a single message per player:
+     * the changed cells, whether they move next and whether the game is over.
+     * Falls back to a full game state broadcast followed by separate turn or game over
+     * notifications when deltas are disabled, or when the move changed so much of the board
+     * that a snapshot is no larger than the delta.
+     */
+    private void broadcastTurnResult() {
+        boolean gameOver = gameController.isGameOver();
+        PlayerHandler winner = gameOver ? recordGameOver() : null;
+
+        GamePiece[][] board = (GamePiece[][]) gameController.getGameState();
+        GameStateDelta delta = DELTA_UPDATES ? stateTracker.diff(board) : null;
+        if (delta == null || stateTracker.prefersSnapshot(delta)) {
+            broadcastGameState(board, delta != null ? delta.version() : stateTracker.reset(board));
+            if (gameOver) {
+                notifyGameOver(winner);
+            } else {
+                notifyTurnChange();
+            }
+            return;
+        }
+
+        int winnerID = winner != null ? winner.getID() : TurnResult.NO_WINNER;
+        SharedFrame result = MessageEncoder.encodeTurnResult(new TurnResult(delta, gameOver, winnerID));
+        PlayerHandler nextPlayer = gameOver ? null : gameController.getCurrentPlayer();
+        turnSnapshot = null;
+        for (PlayerHandler player : context.getParticipants()) {
+            char turn = player == nextPlayer ? TurnResult.YOUR_TURN : TurnResult.OTHER_PLAYER_TURN;
+            sendMessageToPlayer(player, new ThreadMessage<SharedFrame.Delivery>(MessageType.TURN_RESULT, this,
+                    new SharedFrame.Delivery(result, turn)), turnSnapshots);
+        }
+    }
+
+    /**
+     * Builds a full game state for a player whose outbound queue was full when the turn being
+     * broadcast reached it, so the turn results it missed can be collapsed into this snapshot.
+     * Called from {@link #broadcastTurnResult()} on the session's thread, while the board is
+     * still the one the turn result leaves it in.
+     *
+     * @param player The player whose queue is full
+     * @return The player's game state message at the turn result's version
+     */
+    private ThreadMessage<?> turnSnapshotFor(PlayerHandler player) {
+        if (turnSnapshot == null) {
+            turnSnapshot = MessageEncoder.encodeGameState(gameController.getGameState(), stateTracker.getVersion());
+        }
+        ThreadMessage<SharedFrame.Delivery> snapshot = new ThreadMessage<>(MessageType.GAME_STATE_UPDATE, this,
+                new SharedFrame.Delivery(turnSnapshot, gameController.getPlayerPiece(player)));
+        LatencyTracker.continueFrom(snapshot, cause);
+        LatencyTracker.stamp(snapshot, LatencyTracker.Hop.OUTBOUND_ENQUEUED);
+        return snapshot;
+    }
+
+    /**
+     * Handles a resync request from a player who missed a delta.
+     * Sends the requesting player alone a full game state at the current version.
+     *
+     * @param message The resync request message
+     */
+    private void handleResyncRequest(ThreadMessage<?> message) {
+        PlayerHandler player = message.getPlayerSender();
+        if (player == null || !context.getParticipants().contains(player)) {
+            return;
+        }
+        sendGameState(player, MessageEncoder.encodeGameState(gameController.getGameState(), stateTracker.getVersion()));
+    }
+
+    /**
+     * Sends an encoded game state to a player, completed with the player's own piece.
+     *
+     * @param player The player to send the game state to
+     * @param gameState The shared game state frame
+     */
+    private void sendGameState(PlayerHandler player, SharedFrame gameState) {
+        SharedFrame.Delivery delivery = new SharedFrame.Delivery(gameState, gameController.getPlayerPiece(player));
+        sendMessageToPlayer(player, new ThreadMessage<SharedFrame.Delivery>(MessageType.GAME_STATE_UPDATE, this, delivery));
     }
 
     /**
      * Handles a player disconnection.
-     * Cancels the session and notifies other players.
+     * The session is cancelled and the other players are sent GAME_CANCELLED. With a disconnect
+     * grace period configured, the other players are first sent OPPONENT_DISCONNECTED and the
+     * game is paused until the period, timed on the shared {@link TimingWheel}, ends; the timer
+     * then sends the session its own disconnect message and the session is cancelled.
      * 
-     * @param message The disconnect message
+     * @param message The disconnect message, from a player or from the grace period timer
      */
     private void handleDisconnect(ThreadMessage<?> message) {
+        if (message.isFromGameSession()) {
+            // The grace period has ended
+            if (disconnectedPlayer != null) {
+                context.setState(SessionState.CANCELLED);
+                notifyOtherPlayers(disconnectedPlayer, MessageType.GAME_CANCELLED);
+            }
+            return;
+        }
+        PlayerHandler player = message.getPlayerSender();
+        if (player == null || !context.getParticipants().contains(player) || disconnectedPlayer != null) {
+            return;
+        }
+        if (DISCONNECT_GRACE_MILLIS <= 0) {
+            context.setState(SessionState.CANCELLED);
+            notifyOtherPlayers(player, MessageType.GAME_CANCELLED);
+            return;
+        }
+        disconnectedPlayer = player;
+        notifyOtherPlayers(player, MessageType.OPPONENT_DISCONNECTED);
+        if (context.getState() == SessionState.RUNNING) {
+            context.setState(SessionState.PAUSED);
+            gameController.pauseGame();
+            notifyOtherPlayers(player, MessageType.GAME_PAUSED);
+        }
+        disconnectGrace = TimingWheel.getInstance().schedule(
+                () -> deliver(new ThreadMessage<Void>(MessageType.DISCONNECT, this, null)),
+                DISCONNECT_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Handles the {@link SessionRegistry} expiring the session because it went too long without
+     * a move or stayed paused past its budget. The session is cancelled, its players are sent
+     * GAME_CANCELLED, and it cleans up as usual.
+     *
+     * @param message The expiry message, ignored unless the session itself is the sender
+     */
+    private void handleExpired(ThreadMessage<?> message) {
+        if (message.getGameSessionSender() != this) {
+            return;
+        }
         context.setState(SessionState.CANCELLED);
-        // TODO: Notify other player about disconnect
+        notifyOtherPlayers(null, MessageType.GAME_CANCELLED);
     }
 
     /**
@@ -240,39 +605,52 @@ public class GameSessionManager implements Runnable {
             pausedBy = message.getPlayerSender();
             // Notify all players about pause
             for (PlayerHandler player : context.getParticipants()) {
-                sendMessageToPlayer(player, new ThreadMessage<Void>(MessageType.GAME_PAUSED, this, null));
+                sendMessageToPlayer(player, ThreadMessage.notification(MessageType.GAME_PAUSED));
             }
         }
     }
 
     /**
      * Handles a resume request from a player.
-     * Only the player who paused the game can resume it.
+     * Only the player who paused the game can resume it, and not while another player's
+     * disconnect is holding the game paused.
      * 
      * @param message The resume request message
      */
     private void handleResumeRequest(ThreadMessage<?> message) {
         if (context.getState() == SessionState.PAUSED && 
-            message.getPlayerSender() == pausedBy) {
+            message.getPlayerSender() == pausedBy && disconnectedPlayer == null) {
             context.setState(SessionState.RUNNING);
             gameController.resumeGame();
             pausedBy = null;
             // Notify all players about resume
             for (PlayerHandler player : context.getParticipants()) {
-                sendMessageToPlayer(player, new ThreadMessage<Void>(MessageType.GAME_RESUMED, this, null));
+                sendMessageToPlayer(player, ThreadMessage.notification(MessageType.GAME_RESUMED));
             }
         }
     }
 
     /**
-     * Handles the end of the game.
-     * Notifies players about the winner or draw.
+     * Records the end of the game in the session context.
+     *
+     * @return The winning player, or null for a draw
      */
-    private void handleGameOver() {
+    private PlayerHandler recordGameOver() {
         context.setState(SessionState.COMPLETED);
         PlayerHandler winner = gameController.getWinner();
         if (winner != null) {
             context.setWinner(winner.getID());
+        }
+        return winner;
+    }
+
+    /**
+     * Notifies players about the winner or draw.
+     *
+     * @param winner The winning player, or null for a draw
+     */
+    private void notifyGameOver(PlayerHandler winner) {
+        if (winner != null) {
             // Notify all players about the winner
             for (PlayerHandler player : context.getParticipants()) {
                 sendMessageToPlayer(player, new ThreadMessage<PlayerHandler>(MessageType.GAME_WON, this, winner));
@@ -280,7 +658,7 @@ public class GameSessionManager implements Runnable {
         } else {
             // Notify all players about the draw
             for (PlayerHandler player : context.getParticipants()) {
-                sendMessageToPlayer(player, new ThreadMessage<Void>(MessageType.GAME_DRAWN, this, null));
+                sendMessageToPlayer(player, ThreadMessage.notification(MessageType.GAME_DRAWN));
             }
         }
     }
@@ -293,9 +671,9 @@ public class GameSessionManager implements Runnable {
         PlayerHandler currentPlayer = gameController.getCurrentPlayer();
         for (PlayerHandler player : context.getParticipants()) {
             if (player == currentPlayer) {
-                sendMessageToPlayer(player, new ThreadMessage<Void>(MessageType.YOUR_TURN, this, null));
+                sendMessageToPlayer(player, ThreadMessage.notification(MessageType.YOUR_TURN));
             } else {
-                sendMessageToPlayer(player, new ThreadMessage<Void>(MessageType.OTHER_PLAYER_TURN, this, null));
+                sendMessageToPlayer(player, ThreadMessage.notification(MessageType.OTHER_PLAYER_TURN));
             }
         }
     }
@@ -306,7 +684,21 @@ public class GameSessionManager implements Runnable {
      * @param player The player to notify
      */
     private void sendNotYourTurnMessage(PlayerHandler player) {
-        sendMessageToPlayer(player, new ThreadMessage<Void>(MessageType.NOT_YOUR_TURN, this, null));
+        sendMessageToPlayer(player, ThreadMessage.notification(MessageType.NOT_YOUR_TURN));
+    }
+
+    /**
+     * Sends a notification to every player except one, such as the player who disconnected.
+     * 
+     * @param excluded The player not to notify, or null to notify every player
+     * @param type The payload-less notification to send
+     */
+    private void notifyOtherPlayers(PlayerHandler excluded, MessageType type) {
+        for (PlayerHandler participant : context.getParticipants()) {
+            if (participant != excluded) {
+                sendMessageToPlayer(participant, ThreadMessage.notification(type));
+            }
+        }
     }
 
     /**
@@ -321,14 +713,42 @@ public class GameSessionManager implements Runnable {
 
     /**
      * Sends a message to a specific player.
-     * This is a placeholder - actual implementation will depend on how messages
-     * are sent to clients.
+     * The message is queued on the player's handler, which forwards it to the client
+     * from its own thread or from its transport's event loop once {@link #flushOutbound()}
+     * wakes it at the end of the batch.
      * 
      * @param player The player to send the message to
      * @param message The message to send
      */
     private void sendMessageToPlayer(PlayerHandler player, ThreadMessage<?> message) {
-        // TODO: Implement actual message sending to client
-        // This might involve getting the player's output queue or socket
+        sendMessageToPlayer(player, message, null);
+    }
+
+    /**
+     * Sends a message to a specific player, with a way to bring them up to date should their
+     * outbound queue be full.
+     *
+     * @param player The player to send the message to
+     * @param message The message to send
+     * @param snapshots Builds the player's full game state if their queue is full, or null
+     */
+    private void sendMessageToPlayer(PlayerHandler player, ThreadMessage<?> message,
+                                     Function<PlayerHandler, ThreadMessage<?>> snapshots) {
+        markCauseProcessed();
+        LatencyTracker.continueFrom(message, cause);
+        player.enqueue(message, snapshots);
+        if (!pendingRecipients.contains(player)) {
+            pendingRecipients.add(player);
+        }
+    }
+
+    /**
+     * Wakes the transport of every player sent messages since the last flush, once each.
+     */
+    private void flushOutbound() {
+        for (PlayerHandler player : pendingRecipients) {
+            player.flushOutbound();
+        }
+        pendingRecipients.clear();
     }
 }
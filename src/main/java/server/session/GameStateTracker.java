@@ -0,0 +1,116 @@
+package server.session;
+
+import server.game.GamePiece;
+import server.utility.GameStateDelta;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the board a session last sent to its players so that later updates can be sent
+ * as a {@link GameStateDelta} of the changed cells instead of the whole board.
+ * <p>
+ * Every snapshot or delta produced by the tracker advances the game state version by one,
+ * which lets clients detect a missed update and ask for a resync.
+ * Only used from the session's own thread.
+ */
+class GameStateTracker {
+    /** Marks a cell of a freshly sized baseline, which no piece symbol matches */
+    private static final char NOT_SENT = '\uFFFF';
+
+    /** The piece symbols last sent, flattened in row-major order */
+    private char[] lastSent = new char[0];
+
+    /** Scratch space for the indexes of changed cells, reused between diffs */
+    private int[] changed = new int[0];
+
+    /** The version of the game state last sent */
+    private int version;
+
+    /**
+     * Records a full board as the new baseline, as sent in a snapshot
+     * @param board the board being sent
+     * @return the version of the snapshot
+     */
+    int reset(GamePiece[][] board) {
+        resize(board);
+        int index = 0;
+        for (GamePiece[] row : board) {
+            for (GamePiece piece : row) {
+                lastSent[index++] = piece.getSymbol();
+            }
+        }
+        return ++version;
+    }
+
+    /**
+     * Compares a board against the last one sent and records it as the new baseline.
+     * A board of a different size than the last one sent is reported as changed in every cell.
+     * @param board the board after the latest move
+     * @return the changed cells, tagged with the next version
+     */
+    GameStateDelta diff(GamePiece[][] board) {
+        if (resize(board)) {
+            Arrays.fill(lastSent, NOT_SENT);
+        }
+        int count = 0;
+        int index = 0;
+        for (GamePiece[] row : board) {
+            for (GamePiece piece : row) {
+                char symbol = piece.getSymbol();
+                if (lastSent[index] != symbol) {
+                    lastSent[index] = symbol;
+                    changed[count++] = index;
+                }
+                index++;
+            }
+        }
+        int[] cells = new int[count];
+        char[] symbols = new char[count];
+        for (int i = 0; i < count; i++) {
+            cells[i] = changed[i];
+            symbols[i] = lastSent[changed[i]];
+        }
+        return new GameStateDelta(++version, cells, symbols);
+    }
+
+    /**
+     * Checks whether a delta is large enough that a snapshot of the board should be sent instead.
+     * The snapshot is sent at the delta's version, since the delta already moved the baseline.
+     * @param delta the delta from the latest {@link #diff(GamePiece[][])}
+     * @return true if the delta covers more than half of the board
+     */
+    boolean prefersSnapshot(GameStateDelta delta) {
+        return delta.size() * 2 > lastSent.length;
+    }
+
+    /**
+     * Sizes the baseline to a board
+     * @param board the board to track
+     * @return true if the baseline had to be reallocated
+     */
+    private boolean resize(GamePiece[][] board) {
+        int cells = board.length * board[0].length;
+        if (lastSent.length == cells) {
+            return false;
+        }
+        lastSent = new char[cells];
+        changed = new int[cells];
+        return true;
+    }
+
+    /**
+     * Gets the number of cells on the tracked board
+     * @return the cell count, 0 before the first snapshot
+     */
+    int getCellCount() {
+        return lastSent.length;
+    }
+
+    /**
+     * Gets the version of the game state last sent
+     * @return the current version
+     */
+    int getVersion() {
+        return version;
+    }
+}
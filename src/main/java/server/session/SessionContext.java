@@ -2,19 +2,18 @@ package server.session;
 
 import server.player.PlayerHandler;
 import server.utility.GameType;
-import server.utility.ThreadMessage;
+import server.utility.TimingWheel;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Holds all of the runtime state for one live game session on the RetroArcade platform.
  * <p>
  * Tracks the session's unique identifier, game type, managing controller, participants,
- * incoming message queue, timing, lifecycle state, and eventual winner.
+ * timing, lifecycle state, and eventual winner. Incoming messages go to the manager's inbox,
+ * see {@link GameSessionManager#getMailbox()}.
  */
 public class SessionContext {
 
@@ -31,14 +30,23 @@ public class SessionContext {
     /** The player handlers participating in this session. */
     private final Set<PlayerHandler> participants;
 
-    /** Incoming message queue for this session's game loop. */
-    private final BlockingQueue<ThreadMessage<?>> inbox = new LinkedBlockingQueue<>();
-
     /** Timestamp when this session was created—used for duration and timeout checks. */
     private final Instant startTime = Instant.now();
 
-    /** Current lifecycle state of the session. */
-    private SessionState state;
+    /** Current lifecycle state of the session, read by the registry's expiry timer. */
+    private volatile SessionState state;
+
+    /** {@code System.nanoTime()} of the last valid move, or of creation before the first move. */
+    private volatile long lastMoveNanos = System.nanoTime();
+
+    /** {@code System.nanoTime()} of the last change of {@link #state}. */
+    private volatile long stateChangedNanos = lastMoveNanos;
+
+    /** The registry's pending expiry check for this session, see {@link SessionRegistry}. */
+    private TimingWheel.Timeout expiryCheck;
+
+    /** Whether the registry has told the session to expire; only set by the timer's thread. */
+    private volatile boolean expiring;
 
     /** The identifier of the winning player, or {@code null} if the game is unfinished or a draw. */
     private Integer winner;
@@ -81,11 +89,6 @@ public class SessionContext {
         return participants;
     }
 
-    /** @return the queue for incoming {@link ThreadMessage}s */
-    public BlockingQueue<ThreadMessage<?>> getInbox() {
-        return inbox;
-    }
-
     /** @return the instant when this session was started */
     public Instant getStartTime() {
         return startTime;
@@ -107,7 +110,68 @@ public class SessionContext {
      * @param state the new {@link SessionState}
      */
     public void setState(SessionState state) {
-        this.state = state;
+        SessionState previous = this.state;
+        if (previous != state) {
+            this.state = state;
+            stateChangedNanos = System.nanoTime();
+            if (state == SessionState.PAUSED || previous == SessionState.PAUSED && state == SessionState.RUNNING) {
+                // Pausing starts the pause budget and resuming restarts the idle timeout
+                SessionRegistry.getInstance().rescheduleExpiry(this);
+            }
+        }
+    }
+
+    /**
+     * Records that a valid move was just made, which restarts the session's idle timeout.
+     */
+    void recordMove() {
+        lastMoveNanos = System.nanoTime();
+    }
+
+    /** @return the {@code System.nanoTime()} of the last valid move, or of creation if none */
+    long getLastMoveNanos() {
+        return lastMoveNanos;
+    }
+
+    /** @return the {@code System.nanoTime()} of the last state change */
+    long getStateChangedNanos() {
+        return stateChangedNanos;
+    }
+
+    /**
+     * Replaces the registry's pending expiry check and cancels the one it replaces, so the
+     * session never has more than one armed.
+     *
+     * @param expiryCheck the newly scheduled check
+     */
+    synchronized void replaceExpiryCheck(TimingWheel.Timeout expiryCheck) {
+        TimingWheel.Timeout previous = this.expiryCheck;
+        this.expiryCheck = expiryCheck;
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * Cancels the registry's pending expiry check, if any.
+     */
+    synchronized void cancelExpiryCheck() {
+        if (expiryCheck != null) {
+            expiryCheck.cancel();
+            expiryCheck = null;
+        }
+    }
+
+    /** @return whether the registry has already told the session to expire */
+    boolean isExpiring() {
+        return expiring;
+    }
+
+    /**
+     * Marks the session as told to expire, so the next check cleans up after it instead.
+     */
+    void markExpiring() {
+        expiring = true;
     }
 
     /**
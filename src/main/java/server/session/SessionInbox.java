@@ -0,0 +1,188 @@
+package server.session;
+
+import server.player.PlayerHandler;
+import server.utility.ConsumerParker;
+import server.utility.MessageType;
+import server.utility.MpscMailbox;
+import server.utility.ServerConfig;
+import server.utility.ThreadMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A game session's inbox, split into priority lanes.
+ * <p>
+ * Each {@link Lane} is its own lock-free {@link MpscMailbox}, and all of them share one
+ * {@link ConsumerParker} so the session waits on every lane at once. The session always takes
+ * from the control lane first, so a disconnect or pause takes effect on the next message it
+ * processes however many moves are waiting behind it.
+ * <p>
+ * The gameplay lane is capped per player: once a player has {@code session.maxPendingMoves}
+ * moves waiting, further moves from that player are dropped until the session catches up,
+ * so one player flooding invalid moves cannot bury the other's.
+ * <p>
+ * A session run as an actor by the {@link SessionScheduler} never waits on the inbox; it only
+ * polls it when its event loop runs it, and queues itself there as it delivers each message.
+ */
+class SessionInbox {
+
+    /**
+     * The lanes of the inbox, in the order the session takes from them
+     */
+    enum Lane {
+        /**
+         * Session control and system messages, such as disconnects, pauses and resyncs
+         */
+        CONTROL,
+
+        /**
+         * Moves, capped per player
+         */
+        GAMEPLAY;
+
+        /**
+         * Chooses the lane for a message type
+         * @param type the type of the message being delivered
+         * @return the lane the message waits in
+         */
+        static Lane of(MessageType type) {
+            return type == MessageType.MOVE_MADE ? GAMEPLAY : CONTROL;
+        }
+    }
+
+    private static final Lane[] LANES = Lane.values();
+
+    /** The most moves one player may have waiting before more are dropped, 0 for no cap */
+    private static final int MAX_PENDING_MOVES = ServerConfig.getInt("session.maxPendingMoves", 8);
+
+    private final ConsumerParker parker = new ConsumerParker();
+    // One mailbox per lane, indexed by lane ordinal
+    private final List<MpscMailbox<ThreadMessage<?>>> lanes;
+    // Moves waiting in the gameplay lane, per player
+    private final ConcurrentHashMap<PlayerHandler, AtomicInteger> pendingMoves = new ConcurrentHashMap<>(4);
+    private final LongAdder droppedCount = new LongAdder();
+    // Created once so that waiting allocates nothing
+    private final Supplier<ThreadMessage<?>> pollFunction = this::poll;
+
+    /**
+     * Constructs a new, empty inbox
+     */
+    SessionInbox() {
+        List<MpscMailbox<ThreadMessage<?>>> mailboxes = new ArrayList<>(LANES.length);
+        for (int i = 0; i < LANES.length; i++) {
+            mailboxes.add(new MpscMailbox<>(parker));
+        }
+        this.lanes = List.copyOf(mailboxes);
+    }
+
+    /**
+     * Adds a message to its lane, waking the session if it is waiting.
+     * May be called from any thread and never blocks.
+     * @param message the message to add
+     * @return false if the message was dropped because its sender has too many moves waiting
+     */
+    boolean offer(ThreadMessage<?> message) {
+        Lane lane = Lane.of(message.getType());
+        PlayerHandler sender = message.getPlayerSender();
+        if (lane == Lane.GAMEPLAY && sender != null && MAX_PENDING_MOVES > 0) {
+            AtomicInteger pending = pendingMoves.computeIfAbsent(sender, player -> new AtomicInteger());
+            if (pending.incrementAndGet() > MAX_PENDING_MOVES) {
+                pending.decrementAndGet();
+                droppedCount.increment();
+                return false;
+            }
+        }
+        lanes.get(lane.ordinal()).offer(message);
+        return true;
+    }
+
+    /**
+     * Removes the next message without waiting, from the highest priority lane that has one.
+     * Must only be called by the session.
+     * @return the next message, or null if every lane is empty
+     */
+    ThreadMessage<?> poll() {
+        for (MpscMailbox<ThreadMessage<?>> lane : lanes) {
+            ThreadMessage<?> message = lane.poll();
+            if (message != null) {
+                if (lane == lanes.get(Lane.GAMEPLAY.ordinal())) {
+                    releaseMove(message);
+                }
+                return message;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Frees the place a move held in its sender's cap
+     * @param message the move leaving the gameplay lane
+     */
+    private void releaseMove(ThreadMessage<?> message) {
+        PlayerHandler sender = message.getPlayerSender();
+        if (sender != null && MAX_PENDING_MOVES > 0) {
+            AtomicInteger pending = pendingMoves.get(sender);
+            if (pending != null) {
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes the next message, parking until one arrives in any lane.
+     * Must only be called by the session.
+     * @return the next message
+     * @throws InterruptedException if interrupted while waiting
+     */
+    ThreadMessage<?> take() throws InterruptedException {
+        return parker.await(pollFunction, -1);
+    }
+
+    /**
+     * Removes the next message, parking up to the given time for one to arrive in any lane.
+     * Must only be called by the session.
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the next message, or null if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    ThreadMessage<?> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return parker.await(pollFunction, Math.max(unit.toNanos(timeout), 0));
+    }
+
+    /**
+     * Checks whether every lane is empty
+     * @return true if no message is waiting, which may already be out of date
+     */
+    boolean isEmpty() {
+        for (MpscMailbox<ThreadMessage<?>> lane : lanes) {
+            if (!lane.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of messages waiting in a lane, which may already be out of date
+     * @param lane the lane to measure
+     * @return the approximate lane depth
+     */
+    int size(Lane lane) {
+        return lanes.get(lane.ordinal()).size();
+    }
+
+    /**
+     * Get the number of moves dropped because their sender had too many waiting
+     * @return the dropped move count
+     */
+    long getDroppedCount() {
+        return droppedCount.sum();
+    }
+}
@@ -1,15 +1,39 @@
 package server.session;
 
 import server.player.PlayerHandler;
+import server.utility.MessageType;
+import server.utility.ServerConfig;
+import server.utility.ThreadMessage;
+import server.utility.TimingWheel;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static server.utility.ServerLogger.logError;
+import static server.utility.ServerLogger.logInfo;
 
 /**
  * Maintains an in‐memory registry of all active game sessions on the RetroArcade platform.
  * <p>
+ * Sessions that are abandoned are expired by a timer per session on the shared
+ * {@link TimingWheel} rather than by scanning the registry, so the cost of expiry grows with
+ * the number of sessions expiring, not the number registered. What a session may be idle for
+ * depends on its state:
+ * <ul>
+ *   <li>INITIALIZING and RUNNING: {@code session.idleTimeoutMillis} since the last valid move
+ *       or state change</li>
+ *   <li>PAUSED: {@code session.pauseBudgetMillis} since it was paused</li>
+ *   <li>COMPLETED and CANCELLED: none, the session deregisters itself as it finishes and its
+ *       timer is cancelled</li>
+ * </ul>
+ * Each session has exactly one check armed. Moves only record a timestamp and never touch the
+ * timer: when the idle check fires it compares the session's deadline with the clock and, if a
+ * move has been made since, schedules itself again for the new deadline. Pausing moves the check
+ * to the end of the pause budget and resuming moves it back to the idle deadline, so a running
+ * session only wakes the timer about once per idle timeout. An expired session is sent {@link MessageType#SESSION_EXPIRED} and cancels itself on its own
+ * thread; one that has not cleaned up a few seconds later is dropped from the registry.
+ * <p>
  * Singleton: use {@link #getInstance()} to access it from anywhere.
  */
 public final class SessionRegistry {
@@ -25,25 +49,38 @@ public final class SessionRegistry {
         return INSTANCE;
     }
 
+    /** How long a running session may go without a valid move before it is expired. */
+    private static final long IDLE_TIMEOUT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Math.max(ServerConfig.getLong("session.idleTimeoutMillis", 600_000), 1));
+
+    /** How long a session may stay paused before it is expired. */
+    private static final long PAUSE_BUDGET_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Math.max(ServerConfig.getLong("session.pauseBudgetMillis", 300_000), 1));
+
+    /** How long an expired session has to clean up after itself before the registry drops it. */
+    private static final long CLEANUP_GRACE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
     /** Maps session IDs to their corresponding {@link SessionContext}. */
     private final ConcurrentHashMap<Integer, SessionContext> sessions = new ConcurrentHashMap<>();
 
     /** Maps each active {@link PlayerHandler} to the session ID they are in. */
     private final ConcurrentHashMap<PlayerHandler, Integer> playerSessionMap = new ConcurrentHashMap<>();
 
-    /** Registers a new game session. */
+    /** Registers a new game session and starts timing its expiry. */
     public void register(SessionContext context) {
         int sid = context.getSessionID();
         sessions.put(sid, context);
         for (PlayerHandler p : context.getParticipants()) {
             playerSessionMap.put(p, sid);
         }
+        scheduleExpiryCheck(context, IDLE_TIMEOUT_NANOS);
     }
 
-    /** Deregisters a session by its unique ID. */
+    /** Deregisters a session by its unique ID and stops timing its expiry. */
     public void deregister(int sessionId) {
         SessionContext ctx = sessions.remove(sessionId);
         if (ctx != null) {
+            ctx.cancelExpiryCheck();
             for (PlayerHandler p : ctx.getParticipants()) {
                 playerSessionMap.remove(p);
             }
@@ -71,18 +108,80 @@ public final class SessionRegistry {
         return Collections.unmodifiableCollection(sessions.values());
     }
 
-    /** Cleanup sessions older than maxAge. */
-    public void purgeExpired(Duration maxAge) {
-        Instant cutoff = Instant.now().minus(maxAge);
-        for (Iterator<Map.Entry<Integer, SessionContext>> it = sessions.entrySet().iterator(); it.hasNext();) {
-            Map.Entry<Integer, SessionContext> e = it.next();
-            if (e.getValue().getStartTime().isBefore(cutoff)) {
-                it.remove();
-                for (PlayerHandler p : e.getValue().getParticipants()) {
-                    playerSessionMap.remove(p);
-                }
+    /**
+     * Schedules the next expiry check of a session on the shared {@link TimingWheel}.
+     *
+     * @param ctx   the session to check
+     * @param nanos how long until the check
+     */
+    private void scheduleExpiryCheck(SessionContext ctx, long nanos) {
+        ctx.replaceExpiryCheck(TimingWheel.getInstance().schedule(() -> checkExpiry(ctx), nanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Moves a session's expiry check to the deadline of the state it has just entered: the end
+     * of the pause budget when it is paused, its idle deadline when it resumes.
+     * Called by {@link SessionContext#setState(SessionState)} on the session's thread.
+     *
+     * @param ctx the session that was paused or resumed
+     */
+    void rescheduleExpiry(SessionContext ctx) {
+        if (sessions.get(ctx.getSessionID()) != ctx || ctx.isExpiring()) {
+            // Not registered yet or already ended, or told to expire and waiting to clean up
+            return;
+        }
+        scheduleExpiryCheck(ctx, deadlineOf(ctx, ctx.getState()) - System.nanoTime());
+    }
+
+    /**
+     * Checks whether a session has passed the deadline for its state, and expires it if so.
+     * Runs on the timing wheel's thread, so it only hands the session a message; a session that
+     * has already ended, or was told to expire and did not clean up, is deregistered directly.
+     *
+     * @param ctx the session to check
+     */
+    private void checkExpiry(SessionContext ctx) {
+        int sid = ctx.getSessionID();
+        if (sessions.get(sid) != ctx) {
+            return;
+        }
+        SessionState state = ctx.getState();
+        if (state == SessionState.COMPLETED || state == SessionState.CANCELLED || ctx.isExpiring()) {
+            if (ctx.isExpiring() && state != SessionState.COMPLETED && state != SessionState.CANCELLED) {
+                logError("SessionRegistry: Session", sid, "did not cancel itself after expiring, dropping it.");
             }
+            deregister(sid);
+            return;
+        }
+
+        long remaining = deadlineOf(ctx, state) - System.nanoTime();
+        if (remaining > 0) {
+            // Active since the check was armed, wait for the new deadline
+            scheduleExpiryCheck(ctx, remaining);
+            return;
+        }
+
+        logInfo("SessionRegistry: Expiring session", sid, state == SessionState.PAUSED ? "paused too long." : "idle too long.");
+        ctx.markExpiring();
+        GameSessionManager manager = ctx.getManager();
+        manager.deliver(new ThreadMessage<Void>(MessageType.SESSION_EXPIRED, manager, null));
+        scheduleExpiryCheck(ctx, CLEANUP_GRACE_NANOS);
+    }
+
+    /**
+     * Works out when a live session expires if nothing more happens.
+     *
+     * @param ctx   the session
+     * @param state the session's current state
+     * @return the {@code System.nanoTime()} the session expires at
+     */
+    private static long deadlineOf(SessionContext ctx, SessionState state) {
+        if (state == SessionState.PAUSED) {
+            return ctx.getStateChangedNanos() + PAUSE_BUDGET_NANOS;
         }
+        // Resuming counts as activity, so a long pause does not use up the idle timeout
+        long lastActivity = Math.max(ctx.getLastMoveNanos(), ctx.getStateChangedNanos());
+        return lastActivity + IDLE_TIMEOUT_NANOS;
     }
 }
 
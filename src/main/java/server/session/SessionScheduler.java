@@ -0,0 +1,128 @@
+package server.session;
+
+import server.utility.MpscMailbox;
+import server.utility.ServerConfig;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static server.utility.ServerLogger.logError;
+import static server.utility.ServerLogger.logInfo;
+
+/**
+ * Runs game sessions as actors on a fixed set of event loop threads, as an alternative to
+ * giving every {@link GameSessionManager} its own virtual thread.
+ * <p>
+ * {@code session.executor} chooses the mode: {@code threads} (the default) starts a virtual thread
+ * per session that parks on its inbox, {@code actors} uses this scheduler. In actor mode each
+ * session is assigned to one of {@code session.eventLoops} platform threads when it is created and
+ * stays on it, so its state is only ever touched by that thread. A message arriving in an idle
+ * session's inbox puts the session on its loop's run queue once; the loop then processes up to
+ * {@code session.maxBatch} of its messages in one go before moving on to the next session, and
+ * puts it back on the queue if more are waiting.
+ * <p>
+ * Singleton: use {@link #getInstance()} to access it from anywhere. The loops are started on first use.
+ */
+public final class SessionScheduler {
+    /** Whether sessions run as actors on the scheduler's loops rather than on their own threads */
+    private static final boolean ENABLED = ServerConfig.getString("session.executor", "threads").equalsIgnoreCase("actors");
+
+    // Create the one instance of the SessionScheduler
+    private static final SessionScheduler INSTANCE = new SessionScheduler(ServerConfig.getInt("session.eventLoops", 0));
+
+    /**
+     * Public accessor for the singleton
+     * @return the instance of the SessionScheduler
+     */
+    public static SessionScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Checks whether sessions are configured to run as actors
+     * @return true if {@code session.executor} is {@code actors}
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * One event loop thread and the queue of sessions that have messages waiting for it
+     */
+    static final class SessionLoop implements Runnable {
+        // Each session is on the queue at most once, see GameSessionManager.schedule()
+        private final MpscMailbox<GameSessionManager> runQueue = new MpscMailbox<>();
+
+        /**
+         * Queues a session to have its inbox processed.
+         * May be called from any thread.
+         * @param session the session with messages waiting
+         */
+        void submit(GameSessionManager session) {
+            runQueue.offer(session);
+        }
+
+        /**
+         * The function that the loop's thread runs, processes one batch of each ready session in turn
+         */
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                GameSessionManager session;
+                try {
+                    session = runQueue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    if (session.runBatch()) {
+                        session.yieldLoop();
+                    }
+                } catch (RuntimeException e) {
+                    // One failing session must not stop the others on the loop
+                    logError("SessionScheduler: Session batch failed:", e.toString());
+                }
+            }
+        }
+    }
+
+    private final SessionLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    /**
+     * Constructs a new SessionScheduler
+     * @param loopCount the number of event loops, or 0 for one per available processor
+     */
+    private SessionScheduler(int loopCount) {
+        int count = loopCount > 0 ? loopCount : Runtime.getRuntime().availableProcessors();
+        this.loops = new SessionLoop[count];
+        for (int i = 0; i < count; i++) {
+            loops[i] = new SessionLoop();
+        }
+    }
+
+    /**
+     * Chooses the loop a new session will run on, spreading sessions evenly.
+     * May be called from any thread; the loops are started on first use.
+     * @return the loop the session is pinned to
+     */
+    SessionLoop assignLoop() {
+        if (started.compareAndSet(false, true)) {
+            for (int i = 0; i < loops.length; i++) {
+                Thread.ofPlatform().name("RetroArcadeServer-SessionLoop-" + i).daemon(true).start(loops[i]);
+            }
+            logInfo("SessionScheduler: Running sessions on", loops.length, "event loops.");
+        }
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+
+    /**
+     * Get the number of event loops sessions are spread across
+     * @return the loop count
+     */
+    public int getLoopCount() {
+        return loops.length;
+    }
+}
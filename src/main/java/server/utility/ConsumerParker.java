@@ -0,0 +1,78 @@
+package server.utility;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Parks the single consumer of one or more lock-free queues while they are empty, and lets any
+ * producer wake it.
+ * <p>
+ * The consumer announces that it is about to park, then polls once more before parking; a
+ * producer publishes its message, then checks for the announcement. Both sides use volatile
+ * accesses, so either the producer sees the consumer parking or the consumer sees the message.
+ * {@link LockSupport} unmounts a parked virtual thread rather than pinning its carrier.
+ * <p>
+ * Several queues may share a parker so that one consumer can wait on all of them at once.
+ */
+public final class ConsumerParker {
+    // Set while the consumer is parked or about to park
+    private final AtomicBoolean parked = new AtomicBoolean(false);
+    private volatile Thread consumer;
+
+    /**
+     * Wakes the consumer if it is parked.
+     * Called by producers after publishing a message.
+     */
+    public void signal() {
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Polls until a message is available, parking the calling consumer in between.
+     * The poll function should be created once and reused, so waiting allocates nothing.
+     * @param poll removes the next message, or returns null if none is ready
+     * @param timeoutNanos how long to wait, or a negative number to wait forever
+     * @param <E> the type of message polled
+     * @return the next message, or null if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public <E> E await(Supplier<E> poll, long timeoutNanos) throws InterruptedException {
+        E message = poll.get();
+        if (message != null) {
+            return message;
+        }
+        consumer = Thread.currentThread();
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            parked.set(true);
+            // Checked again after announcing the park, so a producer either sees the flag or
+            // its message is seen here
+            message = poll.get();
+            if (message != null) {
+                parked.set(false);
+                return message;
+            }
+            if (timeoutNanos < 0) {
+                LockSupport.park(this);
+            } else {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    parked.set(false);
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            parked.set(false);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            message = poll.get();
+            if (message != null) {
+                return message;
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package server.utility;
+
+/**
+ * The board cells that changed between two consecutive game state versions.
+ * <p>
+ * Cells are addressed by their row-major index ({@code row * columns + col}), using the
+ * dimensions from the last full {@code GAME_STATE_UPDATE} the client received. A client applies
+ * a delta only if its version is exactly one more than the version it holds. A delta at a version
+ * no newer than the client's is already part of its board and is skipped, which happens when a
+ * client that fell behind is sent a snapshot followed by the latest turn result. For any other
+ * gap the client sends a {@code RESYNC_REQUEST} for a new snapshot.
+ *
+ * @param version the game state version after applying this delta
+ * @param cells the row-major indexes of the changed cells
+ * @param symbols the new piece symbol of each changed cell, parallel to {@code cells}
+ */
+public record GameStateDelta(int version, int[] cells, char[] symbols) {
+
+    /**
+     * Returns the number of changed cells.
+     *
+     * @return how many cells this delta updates
+     */
+    public int size() {
+        return cells.length;
+    }
+}
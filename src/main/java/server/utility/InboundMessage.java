@@ -0,0 +1,166 @@
+package server.utility;
+
+import server.player.PlayerHandler;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable, typed holder for one message received from a client.
+ * <p>
+ * {@link MessageDecoder#decodeInto(ByteBuffer, InboundMessage)} and
+ * {@link MessageDecoder#decodeJsonInto(ByteBuffer, InboundMessage)} overwrite the same holder for
+ * every frame a connection receives, so parsing a message allocates nothing. The holder is only
+ * valid until the next frame is decoded; a message handed to another thread must first be copied
+ * with {@link #toThreadMessage(PlayerHandler)}.
+ * <p>
+ * A holder belongs to the single thread reading its connection.
+ */
+public final class InboundMessage {
+
+    /** The most move coordinates a client message may carry, as many as a {@link PackedMove} holds. */
+    public static final int MAX_COORDINATES = PackedMove.MAX_COORDINATES;
+
+    private MessageType type;
+    private GameType gameType;
+    private final int[] coordinates = new int[MAX_COORDINATES];
+    private int coordinateCount;
+    // The coordinates again as a PackedMove, built as they are decoded
+    private int packedMove;
+
+    /**
+     * Clears the holder before the next message is decoded into it
+     */
+    void clear() {
+        type = null;
+        gameType = null;
+        coordinateCount = 0;
+        packedMove = 0;
+    }
+
+    /**
+     * Returns the type of the last decoded message.
+     *
+     * @return the {@link MessageType} of the message
+     */
+    public MessageType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the game the message refers to, for {@code ENQUEUE} and {@code DEQUEUE}.
+     *
+     * @return the {@link GameType}, or null if the message does not name a game
+     */
+    public GameType getGameType() {
+        return gameType;
+    }
+
+    /**
+     * Returns the number of move coordinates, for {@code MOVE_MADE}.
+     *
+     * @return the coordinate count, 0 if the message is not a move
+     */
+    public int getCoordinateCount() {
+        return coordinateCount;
+    }
+
+    /**
+     * Returns one move coordinate.
+     *
+     * @param index the coordinate's position in the move
+     * @return the coordinate
+     * @throws IndexOutOfBoundsException if the move has no coordinate at the index
+     */
+    public int getCoordinate(int index) {
+        if (index >= coordinateCount) {
+            throw new IndexOutOfBoundsException("Move has " + coordinateCount + " coordinates");
+        }
+        return coordinates[index];
+    }
+
+    /**
+     * Returns the move coordinates packed into one int, for {@code MOVE_MADE}.
+     * The decoders reject coordinates outside 0 to {@link PackedMove#MAX_COORDINATE}, so a decoded
+     * move always fits; only a move passed to {@link #load(ThreadMessage)} can come out invalid.
+     *
+     * @return the {@link PackedMove}, or {@link PackedMove#INVALID} for a loaded move that does not fit
+     */
+    public int getPackedMove() {
+        return packedMove;
+    }
+
+    /**
+     * Sets the type of the message being decoded
+     * @param type the message type
+     */
+    void setType(MessageType type) {
+        this.type = type;
+    }
+
+    /**
+     * Sets the game the message being decoded refers to
+     * @param gameType the game type
+     */
+    void setGameType(GameType gameType) {
+        this.gameType = gameType;
+    }
+
+    /**
+     * Appends a move coordinate to the message being decoded
+     * @param coordinate the coordinate
+     * @throws IllegalArgumentException if the move already has the most coordinates allowed
+     */
+    void addCoordinate(int coordinate) {
+        if (coordinateCount == MAX_COORDINATES) {
+            throw new IllegalArgumentException("Move has more than " + MAX_COORDINATES + " coordinates");
+        }
+        coordinates[coordinateCount++] = coordinate;
+        packedMove = PackedMove.append(packedMove, coordinate);
+    }
+
+    /**
+     * Overwrites the holder with a message built in-process, such as one sent by a bot over a
+     * loopback transport, without any encoding. The reverse of {@link #toThreadMessage(PlayerHandler)}.
+     *
+     * @param message the message to copy, with a {@code GameType}, {@code Integer} or {@code int[]}
+     *                payload, or a move created with {@link ThreadMessage#move(PlayerHandler, int)}
+     * @throws IllegalArgumentException if the move has more than {@link #MAX_COORDINATES} coordinates
+     */
+    public void load(ThreadMessage<?> message) {
+        clear();
+        type = message.getType();
+        Object data = message.getData();
+        if (data instanceof GameType game) {
+            gameType = game;
+        } else if (data instanceof Integer coordinate) {
+            addCoordinate(coordinate);
+        } else if (data instanceof int[] move) {
+            for (int coordinate : move) {
+                addCoordinate(coordinate);
+            }
+        } else if (type == MessageType.MOVE_MADE) {
+            int move = message.getPackedMove();
+            for (int i = 0; i < PackedMove.count(move); i++) {
+                addCoordinate(PackedMove.coordinate(move, i));
+            }
+        }
+    }
+
+    /**
+     * Copies the message into a {@link ThreadMessage} that can be handed to another thread.
+     * Moves are copied as a {@link PackedMove}, so nothing but the message itself is allocated.
+     *
+     * @param sender the player the message was received from
+     * @return a new message holding a copy of this one's data
+     */
+    public ThreadMessage<?> toThreadMessage(PlayerHandler sender) {
+        if (type == MessageType.MOVE_MADE) {
+            return ThreadMessage.move(sender, packedMove);
+        }
+        Object data = switch (type) {
+            case ENQUEUE, DEQUEUE -> gameType;
+            default -> null;
+        };
+        return new ThreadMessage<>(type, sender, data);
+    }
+}
@@ -0,0 +1,180 @@
+package server.utility;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static server.utility.ServerLogger.logInfo;
+
+/**
+ * Measures where time goes between a client's message arriving and the messages it causes
+ * reaching other clients, using {@code System.nanoTime()} stamps carried by each {@link ThreadMessage}.
+ * <p>
+ * A message is stamped at each {@link Hop} it passes. Every stamp records the time since the
+ * previous one in a {@link LatencyHistogram} for the message's type and the hop, so a move's
+ * time is split into routing, waiting in and being processed by its session, queueing for each
+ * recipient and being written out. Messages a session sends in response to a move are continued
+ * from it with {@link #continueFrom(ThreadMessage, ThreadMessage)}, which lets the
+ * {@link Hop#END_TO_END} histogram measure from the move being decoded to the result being written.
+ * <p>
+ * Stamping reads the clock once and increments one counter, and allocates nothing once a
+ * histogram exists, so it is cheap enough to leave on. It is turned off with
+ * {@code metrics.latencyStamps=false}, and the histograms are logged every
+ * {@code metrics.latencyReportSeconds} seconds. Shared notification instances, see
+ * {@link ThreadMessage#notification(MessageType)}, are never stamped.
+ */
+public final class LatencyTracker {
+
+    /**
+     * The points a message is stamped at. Each hop's histogram holds the time since the previous stamp.
+     */
+    public enum Hop {
+        /**
+         * A client's message has been decoded, the first stamp so it has no histogram of its own
+         */
+        DECODED,
+
+        /**
+         * The message has been added to its game session's inbox
+         */
+        SESSION_ENQUEUED,
+
+        /**
+         * The session has taken the message from its inbox and handled it
+         */
+        PROCESSED,
+
+        /**
+         * A message for a client has been added to the client's outbound queue
+         */
+        OUTBOUND_ENQUEUED,
+
+        /**
+         * A message for a client has been handed to its connection
+         */
+        WRITTEN,
+
+        /**
+         * Not a stamp: the time from the originating message being decoded to a message it caused
+         * being written, recorded along with {@link #WRITTEN}
+         */
+        END_TO_END
+    }
+
+    private static final boolean ENABLED = ServerConfig.getBoolean("metrics.latencyStamps", true);
+    private static final long REPORT_SECONDS = ServerConfig.getLong("metrics.latencyReportSeconds", 60);
+
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+    private static final Hop[] HOPS = Hop.values();
+
+    // Indexed by message type ordinal * hop count + hop ordinal, created on first use
+    private static final AtomicReferenceArray<LatencyHistogram> histograms =
+            new AtomicReferenceArray<>(MESSAGE_TYPES.length * HOPS.length);
+
+    static {
+        if (ENABLED && REPORT_SECONDS > 0) {
+            scheduleReport();
+        }
+    }
+
+    /**
+     * Private constructor, stamping is done through the static methods
+     */
+    private LatencyTracker() { }
+
+    /**
+     * Checks whether messages are being stamped
+     * @return false if {@code metrics.latencyStamps} is turned off
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Stamps a message as it passes a hop, recording the time since its previous stamp.
+     * Must only be called by the thread currently handling the message.
+     * @param message the message to stamp
+     * @param hop the hop it has reached, not {@link Hop#END_TO_END}
+     */
+    public static void stamp(ThreadMessage<?> message, Hop hop) {
+        if (!ENABLED || message.isShared()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long previous = message.getStampNanos();
+        if (previous != 0) {
+            histogram(message.getType(), hop).record(now - previous);
+        }
+        if (hop == Hop.DECODED) {
+            message.setOriginNanos(now);
+        } else if (hop == Hop.WRITTEN && message.getOriginNanos() != 0) {
+            histogram(message.getType(), Hop.END_TO_END).record(now - message.getOriginNanos());
+        }
+        message.setStampNanos(now);
+    }
+
+    /**
+     * Carries a message's stamps over to a message sent because of it, such as the turn result
+     * of a move, so the new message's next hop and its end-to-end time are measured from them.
+     * @param message the new message
+     * @param cause the message being handled when it was created, or null
+     */
+    public static void continueFrom(ThreadMessage<?> message, ThreadMessage<?> cause) {
+        if (!ENABLED || cause == null || message.isShared() || message.getStampNanos() != 0) {
+            return;
+        }
+        message.setOriginNanos(cause.getOriginNanos());
+        message.setStampNanos(cause.getStampNanos());
+    }
+
+    /**
+     * Get the histogram of one message type's latency at one hop
+     * @param type the message type
+     * @param hop the hop
+     * @return the histogram, created empty if nothing has been recorded yet
+     */
+    public static LatencyHistogram histogram(MessageType type, Hop hop) {
+        int index = type.ordinal() * HOPS.length + hop.ordinal();
+        LatencyHistogram histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, new LatencyHistogram());
+            histogram = histograms.get(index);
+        }
+        return histogram;
+    }
+
+    /**
+     * Logs the count, median, 99th percentile and maximum of every histogram recorded into
+     */
+    public static void logSummary() {
+        for (MessageType type : MESSAGE_TYPES) {
+            for (Hop hop : HOPS) {
+                LatencyHistogram histogram = histograms.get(type.ordinal() * HOPS.length + hop.ordinal());
+                if (histogram == null || histogram.getCount() == 0) {
+                    continue;
+                }
+                logInfo("LatencyTracker:", type, hop, "count", histogram.getCount(),
+                        "p50", micros(histogram.getPercentile(50)), "p99", micros(histogram.getPercentile(99)),
+                        "max", micros(histogram.getMax()));
+            }
+        }
+    }
+
+    /**
+     * Formats a latency for the summary
+     * @param nanos the latency in nanoseconds
+     * @return the latency in microseconds with its unit
+     */
+    private static String micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+    }
+
+    /**
+     * Logs the summary on the shared {@link TimingWheel} every report interval
+     */
+    private static void scheduleReport() {
+        TimingWheel.getInstance().schedule(() -> {
+            logSummary();
+            scheduleReport();
+        }, REPORT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -1,2 +1,444 @@
-package server.utility;public class MessageDecoder {
+package server.utility;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes frames received from clients into a reusable {@link InboundMessage}.
+ * <p>
+ * Binary frames are read straight from a {@link ByteBuffer} using the layouts documented in
+ * {@link MessageEncoder}. JSON frames are a single line of text and are expected to have a
+ * {@code "type"} naming the {@link MessageType} and an optional {@code "data"} value.
+ * <p>
+ * Both formats are read in place from the receive buffer, so decoding allocates nothing per
+ * message. Move coordinates are packed into a {@link PackedMove} as they are read; a coordinate
+ * outside {@code 0..}{@link PackedMove#MAX_COORDINATE} is rejected.
+ */
+public class MessageDecoder {
+
+    /**
+     * Private constructor, all decoding is done through the static methods
+     */
+    private MessageDecoder() { }
+
+    /** MessageType values indexed by ordinal, avoids copying the array on every lookup. */
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+
+    /** GameType values indexed by ordinal. */
+    private static final GameType[] GAME_TYPES = GameType.values();
+
+    /** MessageType names as ASCII bytes indexed by ordinal, matched against JSON without creating Strings. */
+    private static final byte[][] MESSAGE_TYPE_NAMES = new byte[MESSAGE_TYPES.length][];
+
+    static {
+        for (MessageType type : MESSAGE_TYPES) {
+            MESSAGE_TYPE_NAMES[type.ordinal()] = type.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final byte[] TYPE_KEY = "type".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DATA_KEY = "data".getBytes(StandardCharsets.US_ASCII);
+
+    /** The deepest nesting of arrays and objects skipped in a JSON message. */
+    private static final int MAX_JSON_DEPTH = 16;
+
+    /**
+     * Checks whether a complete binary frame is available at the buffer's position
+     * @param buffer the received bytes, in read mode
+     * @return the full frame length including the length prefix, or -1 if more bytes are needed
+     * @throws IllegalArgumentException if the length prefix exceeds the maximum frame length
+     */
+    public static int frameLength(ByteBuffer buffer) {
+        if (buffer.remaining() < WireFormat.LENGTH_PREFIX_SIZE) {
+            return -1;
+        }
+        int bodyLength = Short.toUnsignedInt(buffer.getShort(buffer.position()));
+        if (bodyLength > WireFormat.MAX_FRAME_LENGTH || bodyLength < WireFormat.HEADER_SIZE) {
+            throw new IllegalArgumentException("Invalid frame length: " + bodyLength);
+        }
+        int frameLength = WireFormat.LENGTH_PREFIX_SIZE + bodyLength;
+        return buffer.remaining() >= frameLength ? frameLength : -1;
+    }
+
+    /**
+     * Decodes one complete binary client frame into a reusable holder without allocating.
+     * Only the payloads the server acts on are read, any other payload is skipped.
+     * The buffer's position is left after the frame.
+     * @param buffer a buffer holding at least one complete frame
+     * @param into the holder to overwrite with the decoded message
+     * @throws IllegalArgumentException if the frame is malformed, uses an unsupported version or
+     *         carries a move coordinate that does not fit in a {@link PackedMove}
+     */
+    public static void decodeInto(ByteBuffer buffer, InboundMessage into) {
+        into.clear();
+        int start = buffer.position();
+        int bodyLength = Short.toUnsignedInt(buffer.getShort());
+        int end = start + WireFormat.LENGTH_PREFIX_SIZE + bodyLength;
+        try {
+            int version = Byte.toUnsignedInt(buffer.get());
+            if (version != WireFormat.PROTOCOL_VERSION) {
+                throw new IllegalArgumentException("Unsupported protocol version: " + version);
+            }
+            MessageType type = messageType(Byte.toUnsignedInt(buffer.get()));
+            into.setType(type);
+            switch (type) {
+                case ENQUEUE, DEQUEUE -> into.setGameType(gameType(Byte.toUnsignedInt(buffer.get())));
+                case MOVE_MADE -> {
+                    int count = Byte.toUnsignedInt(buffer.get());
+                    for (int i = 0; i < count; i++) {
+                        into.addCoordinate(moveCoordinate(Byte.toUnsignedInt(buffer.get())));
+                    }
+                }
+                default -> {
+                    // Payloads the server does not act on are skipped
+                }
+            }
+            if (buffer.position() > end) {
+                throw new IllegalArgumentException("Payload overruns frame for " + type);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated frame");
+        } finally {
+            buffer.position(Math.min(end, buffer.limit()));
+        }
+    }
+
+    /**
+     * Decodes one JSON client message into a reusable holder without allocating.
+     * The message is scanned in place: the type name is matched byte by byte against the
+     * {@link MessageType} names, and the data is read as an integer or an array of integers
+     * once the type is known. Other keys and values are skipped.
+     * @param line a buffer whose remaining bytes are the JSON object, without its trailing newline
+     * @param into the holder to overwrite with the decoded message
+     * @throws IllegalArgumentException if the JSON is malformed, names an unknown message type or
+     *         carries a move coordinate that does not fit in a {@link PackedMove}
+     */
+    public static void decodeJsonInto(ByteBuffer line, InboundMessage into) {
+        into.clear();
+        int end = line.limit();
+        int dataStart = -1;
+        int i = expect(line, skipWhitespace(line, line.position(), end), end, '{');
+        i = skipWhitespace(line, i, end);
+        if (peek(line, i, end) == '}') {
+            i++;
+        } else {
+            while (true) {
+                i = skipWhitespace(line, i, end);
+                if (peek(line, i, end) != '"') {
+                    throw jsonError("Expected a key", i);
+                }
+                int keyStart = i + 1;
+                i = skipString(line, i, end);
+                int keyEnd = i - 1;
+                i = skipWhitespace(line, expect(line, skipWhitespace(line, i, end), end, ':'), end);
+                if (matches(line, keyStart, keyEnd, TYPE_KEY)) {
+                    if (peek(line, i, end) != '"') {
+                        throw jsonError("Expected the type name", i);
+                    }
+                    int nameStart = i + 1;
+                    i = skipString(line, i, end);
+                    into.setType(messageTypeNamed(line, nameStart, i - 1));
+                } else {
+                    if (matches(line, keyStart, keyEnd, DATA_KEY)) {
+                        dataStart = i;
+                    }
+                    i = skipValue(line, i, end, 0);
+                }
+                i = skipWhitespace(line, i, end);
+                if (peek(line, i, end) == ',') {
+                    i++;
+                } else {
+                    i = expect(line, i, end, '}');
+                    break;
+                }
+            }
+        }
+        if (skipWhitespace(line, i, end) != end) {
+            throw jsonError("Unexpected trailing characters", i);
+        }
+        if (into.getType() == null) {
+            throw new IllegalArgumentException("Message must be an object with a \"type\"");
+        }
+        line.position(end);
+        if (dataStart < 0 || peek(line, dataStart, end) == 'n') {
+            return;
+        }
+        switch (into.getType()) {
+            case ENQUEUE, DEQUEUE -> into.setGameType(gameType(jsonInt(line, dataStart, end)));
+            case MOVE_MADE -> {
+                if (peek(line, dataStart, end) != '[') {
+                    into.addCoordinate(moveCoordinate(jsonInt(line, dataStart, end)));
+                    return;
+                }
+                i = skipWhitespace(line, dataStart + 1, end);
+                while (peek(line, i, end) != ']') {
+                    into.addCoordinate(moveCoordinate(jsonInt(line, i, end)));
+                    i = skipWhitespace(line, skipValue(line, i, end, 0), end);
+                    if (peek(line, i, end) == ',') {
+                        i = skipWhitespace(line, i + 1, end);
+                    }
+                }
+            }
+            default -> {
+                // Data the server does not act on is ignored
+            }
+        }
+    }
+
+    /**
+     * Looks up a MessageType by its wire ordinal
+     * @param ordinal the ordinal received
+     * @return the MessageType
+     */
+    private static MessageType messageType(int ordinal) {
+        if (ordinal >= MESSAGE_TYPES.length) {
+            throw new IllegalArgumentException("Unknown message type: " + ordinal);
+        }
+        return MESSAGE_TYPES[ordinal];
+    }
+
+    /**
+     * Looks up a GameType by its wire ordinal
+     * @param ordinal the ordinal received
+     * @return the GameType
+     */
+    private static GameType gameType(int ordinal) {
+        if (ordinal < 0 || ordinal >= GAME_TYPES.length) {
+            throw new IllegalArgumentException("Unknown game type: " + ordinal);
+        }
+        return GAME_TYPES[ordinal];
+    }
+
+    /**
+     * Checks that a move coordinate received from a client fits in a {@link PackedMove}
+     * @param coordinate the coordinate received
+     * @return the coordinate
+     * @throws IllegalArgumentException if the coordinate is outside 0 to {@link PackedMove#MAX_COORDINATE}
+     */
+    private static int moveCoordinate(int coordinate) {
+        if (coordinate < 0 || coordinate > PackedMove.MAX_COORDINATE) {
+            throw new IllegalArgumentException("Move coordinate " + coordinate + " is outside 0 to " + PackedMove.MAX_COORDINATE);
+        }
+        return coordinate;
+    }
+
+    /**
+     * Finds the MessageType whose name matches a range of ASCII bytes
+     * @param buffer the buffer holding the name
+     * @param start the index of the name's first byte
+     * @param end the index after the name's last byte
+     * @return the MessageType
+     */
+    private static MessageType messageTypeNamed(ByteBuffer buffer, int start, int end) {
+        for (int ordinal = 0; ordinal < MESSAGE_TYPE_NAMES.length; ordinal++) {
+            if (matches(buffer, start, end, MESSAGE_TYPE_NAMES[ordinal])) {
+                return MESSAGE_TYPES[ordinal];
+            }
+        }
+        byte[] name = new byte[end - start];
+        buffer.get(start, name);
+        throw new IllegalArgumentException("Unknown message type: " + new String(name, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compares a range of bytes with an expected ASCII string
+     * @param buffer the buffer holding the range
+     * @param start the index of the range's first byte
+     * @param end the index after the range's last byte
+     * @param expected the expected bytes
+     * @return true if the range holds exactly the expected bytes
+     */
+    private static boolean matches(ByteBuffer buffer, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the JSON integer starting at an index
+     * @param buffer the buffer holding the JSON
+     * @param index the index of the integer's first character
+     * @param end the index after the last byte of the JSON
+     * @return the integer
+     */
+    private static int jsonInt(ByteBuffer buffer, int index, int end) {
+        boolean negative = peek(buffer, index, end) == '-';
+        int i = negative ? index + 1 : index;
+        long value = 0;
+        int digits = 0;
+        while (i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+            value = value * 10 + (buffer.get(i++) - '0');
+            if (++digits > 10) {
+                break;
+            }
+        }
+        value = negative ? -value : value;
+        if (digits == 0 || digits > 10 || value != (int) value) {
+            throw jsonError("Expected an integer", index);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Skips one JSON value of any kind
+     * @param buffer the buffer holding the JSON
+     * @param index the index of the value's first character
+     * @param end the index after the last byte of the JSON
+     * @param depth how many arrays and objects enclose the value
+     * @return the index after the value
+     */
+    private static int skipValue(ByteBuffer buffer, int index, int end, int depth) {
+        if (depth > MAX_JSON_DEPTH) {
+            throw jsonError("Nesting too deep", index);
+        }
+        int i = index;
+        switch (peek(buffer, i, end)) {
+            case '"' -> {
+                return skipString(buffer, i, end);
+            }
+            case '{', '[' -> {
+                char close = peek(buffer, i, end) == '{' ? '}' : ']';
+                boolean object = close == '}';
+                i = skipWhitespace(buffer, i + 1, end);
+                if (peek(buffer, i, end) == close) {
+                    return i + 1;
+                }
+                while (true) {
+                    if (object) {
+                        if (peek(buffer, i, end) != '"') {
+                            throw jsonError("Expected a key", i);
+                        }
+                        i = skipString(buffer, i, end);
+                        i = skipWhitespace(buffer, expect(buffer, skipWhitespace(buffer, i, end), end, ':'), end);
+                    }
+                    i = skipWhitespace(buffer, skipValue(buffer, i, end, depth + 1), end);
+                    if (peek(buffer, i, end) == ',') {
+                        i = skipWhitespace(buffer, i + 1, end);
+                    } else {
+                        return expect(buffer, i, end, close);
+                    }
+                }
+            }
+            case 't' -> {
+                return skipLiteral(buffer, i, end, "true");
+            }
+            case 'f' -> {
+                return skipLiteral(buffer, i, end, "false");
+            }
+            case 'n' -> {
+                return skipLiteral(buffer, i, end, "null");
+            }
+            default -> {
+                jsonInt(buffer, i, end);
+                if (peek(buffer, i, end) == '-') {
+                    i++;
+                }
+                while (i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+                    i++;
+                }
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Skips a JSON string, including any escaped characters
+     * @param buffer the buffer holding the JSON
+     * @param index the index of the opening quote
+     * @param end the index after the last byte of the JSON
+     * @return the index after the closing quote
+     */
+    private static int skipString(ByteBuffer buffer, int index, int end) {
+        for (int i = index + 1; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i + 1;
+            }
+        }
+        throw jsonError("Unterminated string", index);
+    }
+
+    /**
+     * Skips a JSON literal such as {@code true}
+     * @param buffer the buffer holding the JSON
+     * @param index the index of the literal's first character
+     * @param end the index after the last byte of the JSON
+     * @param literal the expected literal
+     * @return the index after the literal
+     */
+    private static int skipLiteral(ByteBuffer buffer, int index, int end, String literal) {
+        if (end - index < literal.length()) {
+            throw jsonError("Unexpected token", index);
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer.get(index + i) != literal.charAt(i)) {
+                throw jsonError("Unexpected token", index);
+            }
+        }
+        return index + literal.length();
+    }
+
+    /**
+     * Skips JSON whitespace
+     * @param buffer the buffer holding the JSON
+     * @param index the index to start from
+     * @param end the index after the last byte of the JSON
+     * @return the index of the next non-whitespace byte, or end
+     */
+    private static int skipWhitespace(ByteBuffer buffer, int index, int end) {
+        int i = index;
+        while (i < end) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Gets the character at an index
+     * @param buffer the buffer holding the JSON
+     * @param index the index to read
+     * @param end the index after the last byte of the JSON
+     * @return the character, or {@code '\0'} past the end
+     */
+    private static char peek(ByteBuffer buffer, int index, int end) {
+        return index < end ? (char) buffer.get(index) : '\0';
+    }
+
+    /**
+     * Checks for an expected character
+     * @param buffer the buffer holding the JSON
+     * @param index the index of the expected character
+     * @param end the index after the last byte of the JSON
+     * @param c the expected character
+     * @return the index after the character
+     */
+    private static int expect(ByteBuffer buffer, int index, int end, char c) {
+        if (peek(buffer, index, end) != c) {
+            throw jsonError("Expected '" + c + "'", index);
+        }
+        return index + 1;
+    }
+
+    /**
+     * Creates the exception thrown for malformed JSON
+     * @param reason what was wrong
+     * @param index where in the buffer the problem was found
+     * @return the exception to throw
+     */
+    private static IllegalArgumentException jsonError(String reason, int index) {
+        return new IllegalArgumentException(reason + " at index " + index + " of JSON message");
+    }
 }
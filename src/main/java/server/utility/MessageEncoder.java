@@ -1,2 +1,311 @@
-package server.utility;public class MessageEncoder {
+package server.utility;
+
+import server.game.GamePiece;
+import server.player.PlayerHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes {@link ThreadMessage}s into the frames sent to clients.
+ * <p>
+ * Binary frames use the layout described in {@link WireFormat}, with these payloads:
+ * <ul>
+ *   <li>{@code ERROR}: u16 byte count followed by the UTF-8 message</li>
+ *   <li>{@code ENQUEUE}, {@code DEQUEUE}: u8 {@link GameType} ordinal</li>
+ *   <li>{@code MOVE_MADE}, only sent by clients: u8 coordinate count followed by one u8 per
+ *       coordinate, see {@link PackedMove}</li>
+ *   <li>{@code GAME_WON}: i32 winning player ID</li>
+ *   <li>{@code GAME_STATE_UPDATE}: i32 state version, u8 rows, u8 columns, one piece symbol
+ *       byte per cell in row order, then the recipient's piece symbol byte</li>
+ *   <li>{@code TURN_RESULT}: i32 state version, u8 changed cell count, then a u8 row-major
+ *       cell index and a piece symbol byte per changed cell, u8 game over flag, i32 winning
+ *       player ID, then the recipient's turn symbol byte</li>
+ *   <li>every other type: no payload</li>
+ * </ul>
+ * JSON frames are a single line of the form {@code {"type":"MOVE_MADE","data":[1,2]}}.
+ * <p>
+ * Payload-less notifications are encoded once for the life of the server with
+ * {@link #encodeNotification(MessageType)}, see {@link ThreadMessage#notification(MessageType)}.
+ * Game state broadcasts are encoded once with {@link #encodeGameState(Object, int)} or
+ * {@link #encodeTurnResult(TurnResult)} and shared between recipients, see {@link SharedFrame},
+ * so {@link #encode(ThreadMessage, WireFormat)} only handles the messages built per recipient.
+ */
+public class MessageEncoder {
+
+    /**
+     * Private constructor, all encoding is done through the static methods
+     */
+    private MessageEncoder() { }
+
+    /**
+     * Encodes a message in the given wire format
+     * @param message the message to encode
+     * @param format the connection's negotiated wire format
+     * @return a buffer ready to be written to the client
+     * @throws IllegalArgumentException if the message's data does not match its type
+     */
+    public static ByteBuffer encode(ThreadMessage<?> message, WireFormat format) {
+        if (format == WireFormat.JSON) {
+            return ByteBuffer.wrap((encodeJson(message) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        ByteBuffer frame = ByteBuffer.allocate(WireFormat.LENGTH_PREFIX_SIZE + WireFormat.HEADER_SIZE
+                + payloadLength(message));
+        encodeBinary(message, frame);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Writes a message as a binary frame
+     * @param message the message to encode
+     * @param out the buffer to write the frame into
+     * @throws IllegalArgumentException if the message's data does not match its type or the frame is too large
+     */
+    public static void encodeBinary(ThreadMessage<?> message, ByteBuffer out) {
+        int payloadLength = payloadLength(message);
+        int bodyLength = WireFormat.HEADER_SIZE + payloadLength;
+        if (bodyLength > WireFormat.MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("Frame of " + bodyLength + " bytes exceeds the maximum frame length");
+        }
+        out.putShort((short) bodyLength);
+        out.put((byte) WireFormat.PROTOCOL_VERSION);
+        out.put((byte) message.getType().ordinal());
+
+        Object data = message.getData();
+        switch (message.getType()) {
+            case ERROR -> {
+                byte[] text = ((String) data).getBytes(StandardCharsets.UTF_8);
+                out.putShort((short) text.length);
+                out.put(text);
+            }
+            case ENQUEUE, DEQUEUE -> out.put((byte) ((GameType) data).ordinal());
+            case GAME_WON -> out.putInt(((PlayerHandler) data).getID());
+            default -> {
+                // Notification types carry no payload
+            }
+        }
+    }
+
+    /**
+     * Calculates the size of a message's binary payload
+     * @param message the message to measure
+     * @return the payload size in bytes
+     */
+    private static int payloadLength(ThreadMessage<?> message) {
+        Object data = message.getData();
+        try {
+            return switch (message.getType()) {
+                case ERROR -> 2 + ((String) data).getBytes(StandardCharsets.UTF_8).length;
+                case ENQUEUE, DEQUEUE -> 1;
+                case GAME_WON -> 4;
+                default -> 0;
+            };
+        } catch (ClassCastException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid data for " + message.getType() + ": " + data);
+        }
+    }
+
+    /**
+     * Encodes a message as a single-line JSON object
+     * @param message the message to encode
+     * @return the JSON text, without a trailing newline
+     * @throws IllegalArgumentException if the message's data does not match its type
+     */
+    public static String encodeJson(ThreadMessage<?> message) {
+        StringBuilder json = new StringBuilder(64);
+        json.append("{\"type\":\"").append(message.getType().name()).append('"');
+        Object data = message.getData();
+        switch (message.getType()) {
+            case ERROR -> appendJsonString(json.append(",\"data\":"), (String) data);
+            case ENQUEUE, DEQUEUE -> json.append(",\"data\":").append(((GameType) data).ordinal());
+            case GAME_WON -> json.append(",\"data\":").append(((PlayerHandler) data).getID());
+            default -> {
+                // Notification types carry no data
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Encodes a notification that carries no payload, once for the life of the server.
+     * The frame is complete without a suffix and is shared by every message of the type.
+     * @param type the notification's message type
+     * @return the shared frame
+     */
+    static SharedFrame encodeNotification(MessageType type) {
+        ByteBuffer binary = ByteBuffer.allocate(WireFormat.LENGTH_PREFIX_SIZE + WireFormat.HEADER_SIZE);
+        binary.putShort((short) WireFormat.HEADER_SIZE);
+        binary.put((byte) WireFormat.PROTOCOL_VERSION);
+        binary.put((byte) type.ordinal());
+        String json = "{\"type\":\"" + type.name() + "\"}\n";
+        return new SharedFrame(type, binary.array(), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encodes a game state update once for every recipient of a broadcast.
+     * Each recipient completes the frame with its own piece symbol as the suffix.
+     * @param gameState the game board, as returned by the game controller
+     * @param version the game state version the board corresponds to
+     * @return the shared frame
+     * @throws IllegalArgumentException if the game state is not a board of game pieces
+     */
+    public static SharedFrame encodeGameState(Object gameState, int version) {
+        if (!(gameState instanceof GamePiece[][] board)) {
+            throw new IllegalArgumentException("Game state must be a board of game pieces");
+        }
+        // Everything but the trailing player piece byte, which the length prefix still counts
+        int bodyLength = WireFormat.HEADER_SIZE + 4 + boardLength(board) + 1;
+        ByteBuffer binary = ByteBuffer.allocate(WireFormat.LENGTH_PREFIX_SIZE + bodyLength - 1);
+        binary.putShort((short) bodyLength);
+        binary.put((byte) WireFormat.PROTOCOL_VERSION);
+        binary.put((byte) MessageType.GAME_STATE_UPDATE.ordinal());
+        binary.putInt(version);
+        putBoard(binary, board);
+
+        StringBuilder json = new StringBuilder(64 + boardLength(board) * 2);
+        json.append("{\"type\":\"").append(MessageType.GAME_STATE_UPDATE.name()).append('"');
+        appendJsonBoard(json, board, version);
+        json.append('"');
+
+        return new SharedFrame(MessageType.GAME_STATE_UPDATE, binary.array(),
+                json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encodes the result of a move once for every recipient of a broadcast.
+     * Each recipient completes the frame with its turn symbol as the suffix.
+     * @param result the changed cells and game over status
+     * @return the shared frame
+     */
+    public static SharedFrame encodeTurnResult(TurnResult result) {
+        GameStateDelta changes = result.changes();
+        // Everything but the trailing turn symbol byte, which the length prefix still counts
+        int bodyLength = WireFormat.HEADER_SIZE + deltaLength(changes) + 1 + 4 + 1;
+        ByteBuffer binary = ByteBuffer.allocate(WireFormat.LENGTH_PREFIX_SIZE + bodyLength - 1);
+        binary.putShort((short) bodyLength);
+        binary.put((byte) WireFormat.PROTOCOL_VERSION);
+        binary.put((byte) MessageType.TURN_RESULT.ordinal());
+        putDelta(binary, changes);
+        binary.put((byte) (result.gameOver() ? 1 : 0));
+        binary.putInt(result.winnerID());
+
+        StringBuilder json = new StringBuilder(96 + changes.size() * 8);
+        json.append("{\"type\":\"").append(MessageType.TURN_RESULT.name()).append('"');
+        appendJsonDelta(json, changes);
+        json.append(",\"gameOver\":").append(result.gameOver());
+        json.append(",\"winner\":").append(result.winnerID());
+        json.append(",\"turn\":\"");
+
+        return new SharedFrame(MessageType.TURN_RESULT, binary.array(),
+                json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Calculates the binary size of a delta payload
+     * @param delta the delta to measure
+     * @return the payload size in bytes
+     */
+    private static int deltaLength(GameStateDelta delta) {
+        return 4 + 1 + delta.size() * 2;
+    }
+
+    /**
+     * Writes a delta's version followed by its changed cells
+     * @param out the buffer to write to
+     * @param delta the delta to write
+     */
+    private static void putDelta(ByteBuffer out, GameStateDelta delta) {
+        out.putInt(delta.version());
+        out.put((byte) delta.size());
+        for (int i = 0; i < delta.size(); i++) {
+            out.put((byte) delta.cells()[i]);
+            out.put((byte) delta.symbols()[i]);
+        }
+    }
+
+    /**
+     * Appends the JSON data object of a delta, with each change as an {@code [index, symbol]} pair.
+     * The object is left open so callers can add fields after the cells.
+     * @param json the builder to append to
+     * @param delta the delta to append
+     */
+    private static void appendJsonDelta(StringBuilder json, GameStateDelta delta) {
+        json.append(",\"data\":{\"version\":").append(delta.version()).append(",\"cells\":[");
+        for (int i = 0; i < delta.size(); i++) {
+            json.append(i == 0 ? "[" : ",[").append(delta.cells()[i]).append(',');
+            appendJsonString(json, String.valueOf(delta.symbols()[i]));
+            json.append(']');
+        }
+        json.append(']');
+    }
+
+    /**
+     * Calculates the binary size of a board
+     * @param board the board to measure
+     * @return the size in bytes of the dimensions and cells
+     */
+    private static int boardLength(GamePiece[][] board) {
+        return 2 + board.length * board[0].length;
+    }
+
+    /**
+     * Writes a board's dimensions followed by one symbol byte per cell in row order
+     * @param out the buffer to write to
+     * @param board the board to write
+     */
+    private static void putBoard(ByteBuffer out, GamePiece[][] board) {
+        out.put((byte) board.length);
+        out.put((byte) board[0].length);
+        for (GamePiece[] row : board) {
+            for (GamePiece piece : row) {
+                out.put((byte) piece.getSymbol());
+            }
+        }
+    }
+
+    /**
+     * Appends the JSON data object of a game state update up to its player piece value
+     * @param json the builder to append to
+     * @param board the board to append, one string per row
+     * @param version the game state version the board corresponds to
+     */
+    private static void appendJsonBoard(StringBuilder json, GamePiece[][] board, int version) {
+        json.append(",\"data\":{\"version\":").append(version).append(",\"gameState\":[");
+        for (int row = 0; row < board.length; row++) {
+            json.append(row == 0 ? "\"" : ",\"");
+            for (GamePiece piece : board[row]) {
+                json.append(piece.getSymbol());
+            }
+            json.append('"');
+        }
+        json.append("],\"playerPiece\":");
+    }
+
+    /**
+     * Appends a quoted, escaped JSON string
+     * @param json the builder to append to
+     * @param value the string to append
+     */
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
 }
@@ -9,7 +9,9 @@ package server.utility;
  * <p>
  * Each message type has specific data requirements:
  * <ul>
- *   <li>Messages with no data should use {@code ThreadMessage<Void>}</li>
+ *   <li>Messages with no data should use {@code ThreadMessage<Void>}; game sessions send the shared
+ *       instances from {@link ThreadMessage#notification(MessageType)} instead, whose data is the
+ *       notification's pre-encoded frame</li>
  *   <li>Messages with simple data should use appropriate primitive or object types</li>
  *   <li>Messages with complex data should use appropriate data structures</li>
  * </ul>
@@ -35,6 +37,19 @@ public enum MessageType {
      */
     ERROR,
 
+    // Matchmaking messages
+    /**
+     * Request to join the matchmaking queue for a game.
+     * Data: {@code ThreadMessage<GameType>} - The game to queue for
+     */
+    ENQUEUE,
+
+    /**
+     * Request to leave the matchmaking queue for a game.
+     * Data: {@code ThreadMessage<GameType>} - The game to leave the queue for
+     */
+    DEQUEUE,
+
     // Game control messages
     /**
      * Request to pause the game. Can only be sent by the current player.
@@ -82,7 +97,9 @@ public enum MessageType {
     // Game state updates
     /**
      * A player has made a move.
-     * Data: {@code ThreadMessage<int[]>} - Array of [row, col] coordinates for the move
+     * Data: {@code ThreadMessage<int[]>} - Array of [row, col] coordinates for the move.
+     * Moves received from clients carry no data and are read with
+     * {@link ThreadMessage#getPackedMove()} instead, see {@link PackedMove}.
      */
     MOVE_MADE,
 
@@ -99,13 +116,56 @@ public enum MessageType {
     GAME_DRAWN,
 
     /**
-     * The current state of the game board.
-     * Data: {@code ThreadMessage<Map<String, Object>>} - Map containing:
-     * <ul>
-     *   <li>"gameState": The current game board state (type depends on game)</li>
-     *   <li>"playerPiece": The player's assigned piece (e.g., 'X' or 'O' for TicTacToe)</li>
-     * </ul>
+     * A full snapshot of the game board, sent when a game starts, to a client that asks to
+     * resync, and in place of a turn result whose delta would be no smaller than the board.
+     * Data: {@code ThreadMessage<SharedFrame.Delivery>} - The board and its game state version,
+     * encoded once for all players with the recipient's piece as the suffix
+     */
+    GAME_STATE_UPDATE,
+
+    /**
+     * Request for a full game state snapshot, sent by a client that missed a delta.
+     * Data: {@code ThreadMessage<Void>} - No data required
+     */
+    RESYNC_REQUEST,
+
+    /**
+     * The outcome of a move: the changed cells, who moves next and whether the game is over.
+     * Replaces a game state update and the turn or game over notifications that follow it.
+     * Data: {@code ThreadMessage<SharedFrame.Delivery>} - A {@link TurnResult} encoded once
+     * for all players, with {@link TurnResult#YOUR_TURN} or {@link TurnResult#OTHER_PLAYER_TURN}
+     * as the recipient's suffix
+     */
+    TURN_RESULT,
+
+    /**
+     * Liveness probe sent by the server to a client it has not heard from recently.
+     * The client answers with a HEARTBEAT of its own; any message from the client counts as activity.
+     * Data: {@code ThreadMessage<Void>} - No data required
+     */
+    HEARTBEAT,
+
+    /**
+     * Sent by the {@link server.session.SessionRegistry} to a session that has gone too long
+     * without a move, or stayed paused past its budget, telling it to cancel itself.
+     * Internal only: never sent to clients, and ignored unless the session is the sender.
+     * Data: {@code ThreadMessage<Void>} - No data required
+     */
+    SESSION_EXPIRED,
+
+    /**
+     * Notification that another player in the game has lost their connection.
+     * Only sent when a disconnect grace period is configured: the game is paused until it ends,
+     * then cancelled.
+     * Data: {@code ThreadMessage<Void>} - No data required
+     */
+    OPPONENT_DISCONNECTED,
+
+    /**
+     * Notification that the game has ended without a result, because a player disconnected or
+     * the session expired.
+     * Data: {@code ThreadMessage<Void>} - No data required
      */
-    GAME_STATE_UPDATE
+    GAME_CANCELLED
 }
 
@@ -0,0 +1,162 @@
+package server.utility;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * An unbounded, lock-free queue for many producers and a single consumer, used as a game
+ * session's inbox.
+ * <p>
+ * Messages are stored in fixed-size array chunks linked together as the queue grows. A producer
+ * claims a position with one atomic increment and writes its message straight into the chunk
+ * holding that position, so offering takes no lock and allocates nothing except a new chunk once
+ * every {@value #CHUNK_SIZE} messages. The consumer reads positions in order and drops chunks it
+ * has finished with.
+ * <p>
+ * A consumer with nothing to read parks on a {@link ConsumerParker}, which unmounts a virtual
+ * thread rather than pinning its carrier, and the producer that fills the queue unparks it.
+ * Mailboxes sharing a parker let one consumer wait on several of them at once.
+ *
+ * @param <E> the type of message held
+ */
+public final class MpscMailbox<E> {
+    /** The number of messages held by each chunk. */
+    static final int CHUNK_SIZE = 128;
+
+    /**
+     * One array of slots, covering the positions from {@code base} to {@code base + CHUNK_SIZE}
+     */
+    private static final class Chunk<E> {
+        private final long base;
+        private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<>(CHUNK_SIZE);
+        private final AtomicReference<Chunk<E>> next = new AtomicReference<>();
+
+        private Chunk(long base) {
+            this.base = base;
+        }
+    }
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    // A recent chunk producers start looking from, only ever moves forward
+    private final AtomicReference<Chunk<E>> producerChunk;
+    // Only touched by the consumer, apart from size()
+    private final AtomicLong consumerIndex = new AtomicLong();
+    private Chunk<E> consumerChunk;
+    private final ConsumerParker parker;
+    // Created once so that waiting allocates nothing
+    private final Supplier<E> pollFunction = this::poll;
+
+    /**
+     * Constructs a new, empty MpscMailbox with a parker of its own
+     */
+    public MpscMailbox() {
+        this(new ConsumerParker());
+    }
+
+    /**
+     * Constructs a new, empty MpscMailbox
+     * @param parker the parker woken when a message is offered, which may be shared with other mailboxes
+     */
+    public MpscMailbox(ConsumerParker parker) {
+        Chunk<E> first = new Chunk<>(0);
+        this.producerChunk = new AtomicReference<>(first);
+        this.consumerChunk = first;
+        this.parker = parker;
+    }
+
+    /**
+     * Adds a message, waking the consumer if it is waiting.
+     * May be called from any thread and never blocks.
+     * @param message the message to add
+     */
+    public void offer(E message) {
+        if (message == null) {
+            throw new NullPointerException("message");
+        }
+        // Read before claiming a position, so the chunk can never be past the position
+        Chunk<E> chunk = producerChunk.get();
+        long index = producerIndex.getAndIncrement();
+        while (index >= chunk.base + CHUNK_SIZE) {
+            Chunk<E> next = chunk.next.get();
+            if (next == null) {
+                Chunk<E> created = new Chunk<>(chunk.base + CHUNK_SIZE);
+                next = chunk.next.compareAndSet(null, created) ? created : chunk.next.get();
+            }
+            chunk = next;
+        }
+        Chunk<E> hint = producerChunk.get();
+        if (hint.base < chunk.base) {
+            producerChunk.compareAndSet(hint, chunk);
+        }
+        chunk.slots.set((int) (index - chunk.base), message);
+        parker.signal();
+    }
+
+    /**
+     * Removes the next message without waiting.
+     * Must only be called by the consumer.
+     * @return the next message, or null if none is ready
+     */
+    public E poll() {
+        long index = consumerIndex.get();
+        Chunk<E> chunk = consumerChunk;
+        if (index == chunk.base + CHUNK_SIZE) {
+            Chunk<E> next = chunk.next.get();
+            if (next == null) {
+                return null;
+            }
+            consumerChunk = chunk = next;
+        }
+        int offset = (int) (index - chunk.base);
+        E message = chunk.slots.get(offset);
+        if (message == null) {
+            // Empty, or a producer has claimed the position but not written it yet
+            return null;
+        }
+        chunk.slots.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return message;
+    }
+
+    /**
+     * Removes the next message, parking until one arrives.
+     * Must only be called by the consumer.
+     * @return the next message
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        return parker.await(pollFunction, -1);
+    }
+
+    /**
+     * Removes the next message, parking up to the given time for one to arrive.
+     * Must only be called by the consumer.
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the next message, or null if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return parker.await(pollFunction, Math.max(unit.toNanos(timeout), 0));
+    }
+
+    /**
+     * Checks whether the queue holds no messages
+     * @return true if nothing has been offered that the consumer has not removed
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Get the number of messages waiting, which may already be out of date when it returns
+     * @return the approximate queue depth
+     */
+    public int size() {
+        long size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(Math.min(size, Integer.MAX_VALUE), 0);
+    }
+}
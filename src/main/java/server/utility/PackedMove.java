@@ -0,0 +1,138 @@
+package server.utility;
+
+/**
+ * Packs the coordinates of a move into a single {@code int}, so a move travels from the
+ * connection's reading thread to the game board without being boxed or copied into an array.
+ * <p>
+ * A packed move holds up to {@link #MAX_COORDINATES} coordinates of 7 bits each, which covers
+ * every board the server hosts:
+ * <pre>
+ * +-----+-----------+------------+------------+------------+------------+
+ * | 0   | count (3) | coord3 (7) | coord2 (7) | coord1 (7) | coord0 (7) |
+ * +-----+-----------+------------+------------+------------+------------+
+ * </pre>
+ * Each game reads the coordinates it expects: Connect Four a column, Tic Tac Toe a row and a
+ * column, Checkers the row and column the piece moves from and to. A move that cannot be packed,
+ * because it has too many coordinates or one outside {@code 0..127}, is {@link #INVALID}.
+ */
+public final class PackedMove {
+
+    /** The most coordinates a packed move can hold. */
+    public static final int MAX_COORDINATES = 4;
+
+    /** The largest coordinate a packed move can hold. */
+    public static final int MAX_COORDINATE = 0x7F;
+
+    /** The packed form of a move that could not be packed. */
+    public static final int INVALID = -1;
+
+    private static final int COORDINATE_BITS = 7;
+    private static final int COUNT_SHIFT = COORDINATE_BITS * MAX_COORDINATES;
+
+    /**
+     * Private constructor, packing is done through the static methods
+     */
+    private PackedMove() { }
+
+    /**
+     * Packs a single-coordinate move, such as a Connect Four column
+     * @param a the coordinate
+     * @return the packed move, or {@link #INVALID} if the coordinate is out of range
+     */
+    public static int of(int a) {
+        return append(0, a);
+    }
+
+    /**
+     * Packs a two-coordinate move, such as a Tic Tac Toe row and column
+     * @param a the first coordinate
+     * @param b the second coordinate
+     * @return the packed move, or {@link #INVALID} if a coordinate is out of range
+     */
+    public static int of(int a, int b) {
+        return append(append(0, a), b);
+    }
+
+    /**
+     * Packs a four-coordinate move, such as a Checkers move from one square to another
+     * @param a the first coordinate
+     * @param b the second coordinate
+     * @param c the third coordinate
+     * @param d the fourth coordinate
+     * @return the packed move, or {@link #INVALID} if a coordinate is out of range
+     */
+    public static int of(int a, int b, int c, int d) {
+        return append(append(append(append(0, a), b), c), d);
+    }
+
+    /**
+     * Adds a coordinate to the end of a packed move, for decoders reading one coordinate at a time.
+     * Start from 0, the packed form of a move with no coordinates.
+     * @param packed the move so far
+     * @param coordinate the coordinate to add
+     * @return the longer move, or {@link #INVALID} if the move is full, already invalid or the
+     *         coordinate is out of range
+     */
+    public static int append(int packed, int coordinate) {
+        if (packed == INVALID || coordinate < 0 || coordinate > MAX_COORDINATE) {
+            return INVALID;
+        }
+        int count = count(packed);
+        if (count == MAX_COORDINATES) {
+            return INVALID;
+        }
+        return (packed | coordinate << (count * COORDINATE_BITS)) + (1 << COUNT_SHIFT);
+    }
+
+    /**
+     * Gets the number of coordinates in a packed move
+     * @param packed the packed move
+     * @return the coordinate count, 0 for an invalid move
+     */
+    public static int count(int packed) {
+        return packed == INVALID ? 0 : packed >>> COUNT_SHIFT;
+    }
+
+    /**
+     * Gets one coordinate of a packed move
+     * @param packed the packed move
+     * @param index the coordinate's position in the move
+     * @return the coordinate
+     * @throws IndexOutOfBoundsException if the move has no coordinate at the index
+     */
+    public static int coordinate(int packed, int index) {
+        if (index < 0 || index >= count(packed)) {
+            throw new IndexOutOfBoundsException("Move has " + count(packed) + " coordinates");
+        }
+        return packed >>> (index * COORDINATE_BITS) & MAX_COORDINATE;
+    }
+
+    /**
+     * Checks whether a move was packed successfully
+     * @param packed the packed move
+     * @return false if the move is {@link #INVALID}
+     */
+    public static boolean isValid(int packed) {
+        return packed != INVALID;
+    }
+
+    /**
+     * Packs the move data carried by messages built in-process, such as those sent by bots
+     * @param moveData an {@code Integer} column or an {@code int[]} of coordinates
+     * @return the packed move, or {@link #INVALID} if it cannot be packed
+     * @throws IllegalArgumentException if the data is neither an integer nor an int array
+     */
+    public static int fromData(Object moveData) {
+        if (moveData instanceof Integer column) {
+            return of(column);
+        }
+        if (!(moveData instanceof int[] move)) {
+            throw new IllegalArgumentException("Move data must be an integer or an int array");
+        }
+        int packed = 0;
+        for (int coordinate : move) {
+            packed = append(packed, coordinate);
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,101 @@
+package server.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Provides access to the server's tuning options, loaded once from {@code server-config.properties}
+ * on the classpath.
+ * <p>
+ * Every option is read with a built-in default, so a missing file or key leaves the server
+ * running with its standard behaviour.
+ */
+public class ServerConfig {
+    private static final String FILENAME = "server-config.properties";
+    private static final Properties properties = loadConfiguration();
+
+    /**
+     * Private constructor, all access is through the static getters
+     */
+    private ServerConfig() { }
+
+    /**
+     * Loads the configuration file from the classpath
+     * @return the loaded properties, empty if the file could not be read
+     */
+    private static Properties loadConfiguration() {
+        Properties loaded = new Properties();
+        try (InputStream input = ServerConfig.class.getClassLoader().getResourceAsStream(FILENAME)) {
+            if (input != null) {
+                loaded.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("ServerConfig: Error loading " + FILENAME + ": " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    /**
+     * Gets a string option
+     * @param key the option name
+     * @param defaultValue the value used when the option is not set
+     * @return the configured value, or the default
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Gets an integer option
+     * @param key the option name
+     * @param defaultValue the value used when the option is not set or is not a number
+     * @return the configured value, or the default
+     */
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getString(key, Integer.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets a long option
+     * @param key the option name
+     * @param defaultValue the value used when the option is not set or is not a number
+     * @return the configured value, or the default
+     */
+    public static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(getString(key, Long.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets a decimal option
+     * @param key the option name
+     * @param defaultValue the value used when the option is not set or is not a number
+     * @return the configured value, or the default
+     */
+    public static double getDouble(String key, double defaultValue) {
+        try {
+            return Double.parseDouble(getString(key, Double.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets a boolean option
+     * @param key the option name
+     * @param defaultValue the value used when the option is not set
+     * @return the configured value, or the default
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, Boolean.toString(defaultValue)));
+    }
+}
@@ -0,0 +1,85 @@
+package server.utility;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An immutable, pre-encoded message shared by every recipient of a broadcast.
+ * <p>
+ * The frame is encoded once, in both wire formats, up to a single trailing character that
+ * differs per recipient (for example the recipient's game piece). Each recipient is sent a
+ * {@link Delivery} pairing the shared frame with its own suffix, so broadcasting to N players
+ * costs one encoding of the message plus N one-character suffixes.
+ * <p>
+ * Frames with nothing recipient-specific, the payload-less notifications shared through
+ * {@link ThreadMessage#notification(MessageType)}, are complete as encoded and are sent as the
+ * {@link ThreadMessage}'s data directly, without a Delivery.
+ */
+public final class SharedFrame {
+
+    /**
+     * Addresses a shared frame to one recipient.
+     * Used as the data payload of the recipient's {@link ThreadMessage}.
+     *
+     * @param frame the shared, pre-encoded frame
+     * @param suffix the recipient-specific character that completes the frame
+     */
+    public record Delivery(SharedFrame frame, char suffix) { }
+
+    /** The message type the frame was encoded for. */
+    private final MessageType type;
+
+    /** The binary frame without its final suffix byte, if it has one. The length prefix already counts the suffix. */
+    private final byte[] binary;
+
+    /** The JSON frame up to the opening quote of the suffix string, or the whole line if it has no suffix. */
+    private final byte[] json;
+
+    /**
+     * Constructs a new shared frame from its encoded parts
+     * @param type the message type the frame was encoded for
+     * @param binary the binary frame without its final suffix byte, if it has one
+     * @param json the JSON frame up to, and including, the quote that opens the suffix string,
+     *             or the whole line if it has no suffix
+     */
+    SharedFrame(MessageType type, byte[] binary, byte[] json) {
+        this.type = type;
+        this.binary = binary;
+        this.json = json;
+    }
+
+    /**
+     * Returns the message type the frame was encoded for.
+     *
+     * @return the frame's {@link MessageType}
+     */
+    public MessageType getType() {
+        return type;
+    }
+
+    /**
+     * Returns a view of the shared part of the frame.
+     * The view shares the underlying bytes and must not be modified.
+     *
+     * @param format the recipient's wire format
+     * @return a buffer over the shared bytes, positioned at the start of the frame
+     */
+    public ByteBuffer shared(WireFormat format) {
+        return ByteBuffer.wrap(format == WireFormat.JSON ? json : binary);
+    }
+
+    /**
+     * Encodes the recipient-specific end of the frame
+     *
+     * @param format the recipient's wire format
+     * @param suffix the recipient's suffix character
+     * @return a buffer holding the bytes that complete the frame
+     */
+    public ByteBuffer suffix(WireFormat format, char suffix) {
+        if (format == WireFormat.BINARY) {
+            return ByteBuffer.wrap(new byte[]{(byte) suffix});
+        }
+        String escaped = suffix == '"' || suffix == '\\' ? "\\" + suffix : String.valueOf(suffix);
+        return ByteBuffer.wrap((escaped + "\"}}\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -3,6 +3,9 @@ package server.utility;
 import server.player.PlayerHandler;
 import server.session.GameSessionManager;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 /**
  * Represents a structured message exchanged between server threads in the multiplayer
  * gaming system.
@@ -14,6 +17,16 @@ import server.session.GameSessionManager;
  * Each message includes a {@link MessageType} that defines the nature of the message,
  * and a type-safe data payload of type {@code T}, which may contain game-specific data,
  * user actions, or other contextual information.
+ * <p>
+ * Two kinds of message avoid allocating a payload. Moves created with
+ * {@link #move(PlayerHandler, int)} carry their coordinates as a {@link PackedMove} instead of an
+ * {@code Integer} or {@code int[]}. Notifications with no payload, such as {@code YOUR_TURN}, are
+ * shared immutable instances returned by {@link #notification(MessageType)}: they have no sender,
+ * since the recipient is already known from where they are delivered, and they carry their
+ * pre-encoded frame as a {@link SharedFrame} so they are never encoded again.
+ * <p>
+ * Every other message can also carry the {@code System.nanoTime()} stamps the
+ * {@link LatencyTracker} uses to measure each hop it passes.
  *
  * @param <T> the type of the data payload attached to this message
  */
@@ -40,6 +53,23 @@ public class ThreadMessage<T> {
      */
     private final GameSessionManager gameSessionSender;
 
+    /**
+     * The move's coordinates as a {@link PackedMove}, for {@code MOVE_MADE} messages created with
+     * {@link #move(PlayerHandler, int)}. {@link PackedMove#INVALID} for every other message.
+     */
+    private final int packedMove;
+
+    /**
+     * When the client message this one started from was decoded, 0 if unknown.
+     * Only touched by the thread currently handling the message, see {@link LatencyTracker}.
+     */
+    private long originNanos;
+
+    /**
+     * When the message was last stamped by the {@link LatencyTracker}, 0 if never.
+     */
+    private long stampNanos;
+
     /**
      * Constructs a new player-sent {@code ThreadMessage} with the given type, sender, and associated data.
      *
@@ -52,6 +82,7 @@ public class ThreadMessage<T> {
         this.playerSender = sender;
         this.gameSessionSender = null;
         this.data = data;
+        this.packedMove = PackedMove.INVALID;
     }
 
     /**
@@ -66,6 +97,7 @@ public class ThreadMessage<T> {
         this.playerSender = null;
         this.gameSessionSender = sender;
         this.data = data;
+        this.packedMove = PackedMove.INVALID;
     }
 
     /**
@@ -80,6 +112,70 @@ public class ThreadMessage<T> {
         this.playerSender = null;
         this.gameSessionSender = null;
         this.data = data;
+        this.packedMove = PackedMove.INVALID;
+    }
+
+    /**
+     * Constructs a new player-sent move carrying packed coordinates instead of a payload
+     *
+     * @param sender the player who made the move
+     * @param packedMove the move's coordinates as a {@link PackedMove}
+     */
+    private ThreadMessage(PlayerHandler sender, int packedMove) {
+        this.type = MessageType.MOVE_MADE;
+        this.playerSender = sender;
+        this.gameSessionSender = null;
+        this.data = null;
+        this.packedMove = packedMove;
+    }
+
+    /**
+     * Creates a move message without boxing its coordinates.
+     *
+     * @param sender the player who made the move
+     * @param packedMove the move's coordinates as a {@link PackedMove}
+     * @return a new {@code MOVE_MADE} message
+     */
+    public static ThreadMessage<Void> move(PlayerHandler sender, int packedMove) {
+        return new ThreadMessage<>(sender, packedMove);
+    }
+
+    /**
+     * Returns the shared instance of a notification that carries no payload.
+     * The instance has no sender and its data is the notification's pre-encoded {@link SharedFrame}.
+     *
+     * @param type {@code YOUR_TURN}, {@code OTHER_PLAYER_TURN}, {@code NOT_YOUR_TURN}, {@code GAME_PAUSED},
+     *             {@code GAME_RESUMED}, {@code GAME_DRAWN}, {@code OPPONENT_DISCONNECTED} or {@code GAME_CANCELLED}
+     * @return the cached, immutable message for the type
+     * @throws IllegalArgumentException if the type carries a payload
+     */
+    public static ThreadMessage<SharedFrame> notification(MessageType type) {
+        ThreadMessage<SharedFrame> message = Notifications.CACHE.get(type);
+        if (message == null) {
+            throw new IllegalArgumentException(type + " is not a payload-less notification");
+        }
+        return message;
+    }
+
+    /**
+     * Holds the shared notification instances, built the first time one is needed
+     */
+    private static final class Notifications {
+        /** The notifications a game session sends without a payload. */
+        private static final MessageType[] TYPES = {
+                MessageType.YOUR_TURN, MessageType.OTHER_PLAYER_TURN, MessageType.NOT_YOUR_TURN,
+                MessageType.GAME_PAUSED, MessageType.GAME_RESUMED, MessageType.GAME_DRAWN,
+                MessageType.OPPONENT_DISCONNECTED, MessageType.GAME_CANCELLED
+        };
+
+        /** The shared instance of each notification. */
+        private static final Map<MessageType, ThreadMessage<SharedFrame>> CACHE = new EnumMap<>(MessageType.class);
+
+        static {
+            for (MessageType type : TYPES) {
+                CACHE.put(type, new ThreadMessage<>(type, MessageEncoder.encodeNotification(type)));
+            }
+        }
     }
 
     /**
@@ -100,6 +196,64 @@ public class ThreadMessage<T> {
         return data;
     }
 
+    /**
+     * Returns the coordinates of a {@code MOVE_MADE} message as a {@link PackedMove}.
+     * Moves built with an {@code Integer} or {@code int[]} payload are packed on the fly.
+     *
+     * @return the packed move, or {@link PackedMove#INVALID} if the message has no valid move
+     */
+    public int getPackedMove() {
+        if (packedMove != PackedMove.INVALID || type != MessageType.MOVE_MADE || data == null) {
+            return packedMove;
+        }
+        return data instanceof Integer || data instanceof int[] ? PackedMove.fromData(data) : PackedMove.INVALID;
+    }
+
+    /**
+     * Checks whether this is one of the shared notification instances, which must not be changed
+     *
+     * @return true if the message came from {@link #notification(MessageType)}
+     */
+    boolean isShared() {
+        return Notifications.CACHE.get(type) == this;
+    }
+
+    /**
+     * Returns when the client message this one started from was decoded.
+     *
+     * @return the {@code System.nanoTime()} stamp, or 0 if unknown
+     */
+    long getOriginNanos() {
+        return originNanos;
+    }
+
+    /**
+     * Sets when the client message this one started from was decoded.
+     *
+     * @param originNanos the {@code System.nanoTime()} stamp
+     */
+    void setOriginNanos(long originNanos) {
+        this.originNanos = originNanos;
+    }
+
+    /**
+     * Returns when the message was last stamped.
+     *
+     * @return the {@code System.nanoTime()} stamp, or 0 if never stamped
+     */
+    long getStampNanos() {
+        return stampNanos;
+    }
+
+    /**
+     * Sets when the message was last stamped.
+     *
+     * @param stampNanos the {@code System.nanoTime()} stamp
+     */
+    void setStampNanos(long stampNanos) {
+        this.stampNanos = stampNanos;
+    }
+
     /**
      * Returns the player who sent this message.
      *
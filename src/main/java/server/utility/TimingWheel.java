@@ -0,0 +1,237 @@
+package server.utility;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static server.utility.ServerLogger.logError;
+
+/**
+ * A hashed timing wheel shared by every connection and session for heartbeats, idle timeouts
+ * and grace periods.
+ * <p>
+ * Time is divided into ticks of {@code timer.tickMillis}, and timeouts are hashed into one of
+ * {@code timer.wheelSize} buckets by the tick they expire on. Timeouts further away than one turn
+ * of the wheel wait a number of extra rounds in their bucket. Scheduling and cancelling are O(1)
+ * from any thread, and each tick only visits one bucket, so the cost stays flat no matter how
+ * many connections are being timed. A single thread drives the wheel.
+ * <p>
+ * Tasks run on the wheel's thread and must be short: they should only hand work to the thread
+ * that owns the state, for example by queueing a message.
+ * <p>
+ * Singleton: use {@link #getInstance()} to access it from anywhere.
+ */
+public final class TimingWheel implements Runnable {
+    // Create the one instance of the TimingWheel
+    private static final TimingWheel INSTANCE = new TimingWheel(
+            ServerConfig.getLong("timer.tickMillis", 100), ServerConfig.getInt("timer.wheelSize", 512));
+
+    /**
+     * Public accessor for the singleton
+     * @return the instance of the TimingWheel
+     */
+    public static TimingWheel getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * A task scheduled on the wheel, which can be cancelled until it has run
+     */
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimingWheel wheel;
+        private final Runnable task;
+        // Nanoseconds after the wheel started that the task is due
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // Only touched by the wheel's thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Stops the task from running
+         * @return true if the task had not run or been cancelled yet
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            // Unlinked from its bucket by the wheel's thread on the next tick
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * Checks whether the task has been cancelled
+         * @return true if {@link #cancel()} succeeded
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+
+    /**
+     * One slot of the wheel, a doubly linked list of the timeouts hashed to it
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Runs every timeout in the bucket that is due, and counts down the rounds of the rest
+         * @param deadline the wheel time the current tick ends at
+         */
+        void expire(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                        try {
+                            timeout.task.run();
+                        } catch (RuntimeException e) {
+                            logError("TimingWheel: Timeout task failed:", e.toString());
+                        }
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final long startNanos = System.nanoTime();
+    // The number of ticks processed, only touched by the wheel's thread
+    private long tick;
+
+    /**
+     * Constructs a new TimingWheel, package-private so tests can drive a small wheel of their own
+     * @param tickMillis the length of one tick, the precision timeouts fire with
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     */
+    TimingWheel(long tickMillis, int wheelSize) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(tickMillis, 1));
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     * May be called from any thread; the wheel's thread is started on first use.
+     * @param task the task to run on the wheel's thread
+     * @param delay how long to wait before running the task
+     * @param unit the unit of the delay
+     * @return a handle that can cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (started.compareAndSet(false, true)) {
+            Thread.ofPlatform().name("RetroArcadeServer-TimingWheel").daemon(true).start(this);
+        }
+        Timeout timeout = new Timeout(this, task, System.nanoTime() - startNanos + unit.toNanos(delay));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * The function that the wheel's thread runs, advances the wheel one tick at a time
+     */
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            removeCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * Unlinks cancelled timeouts from their buckets
+     */
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Hashes newly scheduled timeouts into their buckets
+     */
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+            // Timeouts already due go in the current tick's bucket
+            long expiryTick = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+            wheel[(int) (expiryTick & mask)].add(timeout);
+        }
+    }
+}
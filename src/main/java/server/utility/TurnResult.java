@@ -0,0 +1,28 @@
+package server.utility;
+
+/**
+ * Everything a player needs to know after a move, sent as one {@code TURN_RESULT} message
+ * instead of a game state update followed by separate turn or game over notifications.
+ * <p>
+ * Whether the recipient moves next and whether the game is over always apply, even when the
+ * client skips the result's changes because its board is already at their version.
+ * <p>
+ * Whether the recipient moves next differs per player, so it is not part of the result itself.
+ * It is added as the recipient's suffix when the result is broadcast as a {@link SharedFrame}.
+ *
+ * @param changes the cells changed by the move
+ * @param gameOver whether the move ended the game
+ * @param winnerID the ID of the winning player, or {@link #NO_WINNER} while the game continues
+ *                 or if it ended in a draw
+ */
+public record TurnResult(GameStateDelta changes, boolean gameOver, int winnerID) {
+
+    /** The winner ID used while the game continues and for a draw. */
+    public static final int NO_WINNER = -1;
+
+    /** The suffix sent to the player who moves next. */
+    public static final char YOUR_TURN = 'Y';
+
+    /** The suffix sent to every other player, and to everyone once the game is over. */
+    public static final char OTHER_PLAYER_TURN = 'N';
+}
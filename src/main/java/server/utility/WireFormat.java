@@ -0,0 +1,53 @@
+package server.utility;
+
+/**
+ * Represents the encodings a client connection can use on the wire.
+ * <p>
+ * The format is negotiated by the first byte a client sends: a JSON object always starts with
+ * {@code '{'}, while the high byte of a binary frame's length prefix is always below
+ * {@code 0x40} because frames are limited to {@link #MAX_FRAME_LENGTH} bytes.
+ * <p>
+ * A binary frame is laid out as:
+ * <pre>
+ * +-------------+-------------+------------------+------------------+
+ * | length (u16)| version (u8)| message type (u8)| payload          |
+ * +-------------+-------------+------------------+------------------+
+ * </pre>
+ * where {@code length} counts every byte after the length prefix and the message type is the
+ * {@link MessageType} ordinal. Payload layouts are documented in {@link MessageEncoder}.
+ */
+public enum WireFormat {
+    /**
+     * Represents length-prefixed binary frames
+     */
+    BINARY,
+
+    /**
+     * Represents newline-terminated JSON objects, kept as a fallback for simple clients
+     */
+    JSON;
+
+    /**
+     * The binary protocol version written into every frame.
+     * Raised whenever a message type ordinal or a payload layout changes.
+     */
+    public static final int PROTOCOL_VERSION = 1;
+
+    /** The size of the length prefix in bytes. */
+    public static final int LENGTH_PREFIX_SIZE = 2;
+
+    /** The size of the version and message type bytes that follow the length prefix. */
+    public static final int HEADER_SIZE = 2;
+
+    /** The largest frame body, or JSON line, accepted from or sent to a client. */
+    public static final int MAX_FRAME_LENGTH = 0x3FFF;
+
+    /**
+     * Chooses the wire format from the first byte a client sends
+     * @param firstByte the first byte received on the connection
+     * @return JSON if the byte opens a JSON object, otherwise BINARY
+     */
+    public static WireFormat detect(byte firstByte) {
+        return firstByte == '{' ? JSON : BINARY;
+    }
+}
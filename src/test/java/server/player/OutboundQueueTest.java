@@ -0,0 +1,95 @@
+package server.player;
+
+import org.junit.jupiter.api.Test;
+import server.utility.MessageType;
+import server.utility.ThreadMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundQueueTest {
+
+    private static ThreadMessage<String> message(MessageType type, String label) {
+        return new ThreadMessage<>(type, label);
+    }
+
+    private static List<String> drain(OutboundQueue queue) {
+        List<String> labels = new ArrayList<>();
+        ThreadMessage<?> next;
+        while ((next = queue.poll()) != null) {
+            labels.add(next.getType() + ":" + next.getData());
+        }
+        return labels;
+    }
+
+    @Test
+    void queuesEveryMessageInOrderUntilFull() {
+        OutboundQueue queue = new OutboundQueue(4);
+        assertTrue(queue.offer(message(MessageType.GAME_STATE_UPDATE, "s1")));
+        assertTrue(queue.offer(message(MessageType.TURN_RESULT, "r2")));
+        assertTrue(queue.offer(message(MessageType.GAME_STATE_UPDATE, "s2")));
+
+        assertEquals(List.of("GAME_STATE_UPDATE:s1", "TURN_RESULT:r2", "GAME_STATE_UPDATE:s2"), drain(queue));
+        assertEquals(0, queue.getCoalescedCount());
+    }
+
+    @Test
+    void turnResultOnFullQueueCollapsesIntoSnapshotAndLatestResult() {
+        OutboundQueue queue = new OutboundQueue(4);
+        queue.offer(message(MessageType.TURN_RESULT, "r1"));
+        queue.offer(message(MessageType.YOUR_TURN, "n"));
+        queue.offer(message(MessageType.TURN_RESULT, "r2"));
+        queue.offer(message(MessageType.TURN_RESULT, "r3"));
+
+        assertTrue(queue.offer(message(MessageType.TURN_RESULT, "r4"), () -> message(MessageType.GAME_STATE_UPDATE, "s4")));
+
+        assertEquals(List.of("YOUR_TURN:n", "GAME_STATE_UPDATE:s4", "TURN_RESULT:r4"), drain(queue));
+        assertEquals(3, queue.getCoalescedCount());
+        assertFalse(queue.isOverflowed());
+    }
+
+    @Test
+    void snapshotOnFullQueueKeepsTheLatestResultAfterIt() {
+        OutboundQueue queue = new OutboundQueue(3);
+        queue.offer(message(MessageType.TURN_RESULT, "r1"));
+        queue.offer(message(MessageType.GAME_STATE_UPDATE, "s1"));
+        queue.offer(message(MessageType.TURN_RESULT, "r2"));
+
+        assertTrue(queue.offer(message(MessageType.GAME_STATE_UPDATE, "s2")));
+
+        assertEquals(List.of("GAME_STATE_UPDATE:s2", "TURN_RESULT:r2"), drain(queue));
+        assertEquals(2, queue.getCoalescedCount());
+    }
+
+    @Test
+    void snapshotIsOnlyBuiltWhenTheQueueIsFull() {
+        OutboundQueue queue = new OutboundQueue(4);
+        assertTrue(queue.offer(message(MessageType.TURN_RESULT, "r1"), () -> fail("snapshot built early")));
+        assertEquals(List.of("TURN_RESULT:r1"), drain(queue));
+    }
+
+    @Test
+    void droppableMessagesAreDiscardedWhenFull() {
+        OutboundQueue queue = new OutboundQueue(1);
+        queue.offer(message(MessageType.ERROR, "e"));
+
+        assertTrue(queue.offer(message(MessageType.HEARTBEAT, "h")));
+
+        assertEquals(1, queue.getDroppedCount());
+        assertFalse(queue.isOverflowed());
+    }
+
+    @Test
+    void overflowsWhenNothingCanBeCollapsed() {
+        OutboundQueue queue = new OutboundQueue(2);
+        queue.offer(message(MessageType.ERROR, "e1"));
+        queue.offer(message(MessageType.ERROR, "e2"));
+
+        assertFalse(queue.offer(message(MessageType.TURN_RESULT, "r1"), () -> message(MessageType.GAME_STATE_UPDATE, "s1")));
+
+        assertTrue(queue.isOverflowed());
+        assertNull(queue.poll());
+    }
+}
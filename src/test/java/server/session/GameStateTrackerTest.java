@@ -0,0 +1,98 @@
+package server.session;
+
+import org.junit.jupiter.api.Test;
+import server.game.GamePiece;
+import server.utility.GameStateDelta;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStateTrackerTest {
+
+    private record Piece(char symbol) implements GamePiece {
+        @Override
+        public char getSymbol() {
+            return symbol;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return symbol == ' ';
+        }
+    }
+
+    private final GameStateTracker tracker = new GameStateTracker();
+
+    private static GamePiece[][] board(String... rows) {
+        GamePiece[][] board = new GamePiece[rows.length][];
+        for (int r = 0; r < rows.length; r++) {
+            board[r] = new GamePiece[rows[r].length()];
+            for (int c = 0; c < rows[r].length(); c++) {
+                board[r][c] = new Piece(rows[r].charAt(c));
+            }
+        }
+        return board;
+    }
+
+    @Test
+    void diffReportsOnlyTheChangedCellsInRowMajorOrder() {
+        tracker.reset(board("   ", "   ", "   "));
+
+        GameStateDelta delta = tracker.diff(board("X  ", "   ", "  O"));
+
+        assertArrayEquals(new int[]{0, 8}, delta.cells());
+        assertArrayEquals(new char[]{'X', 'O'}, delta.symbols());
+        assertEquals(0, tracker.diff(board("X  ", "   ", "  O")).size());
+    }
+
+    @Test
+    void everySnapshotAndDeltaAdvancesTheVersionByOne() {
+        assertEquals(0, tracker.getVersion());
+        assertEquals(1, tracker.reset(board("   ", "   ", "   ")));
+        assertEquals(2, tracker.diff(board("X  ", "   ", "   ")).version());
+        assertEquals(3, tracker.diff(board("X  ", "   ", "   ")).version());
+        assertEquals(4, tracker.reset(board("X  ", "   ", "   ")));
+        assertEquals(4, tracker.getVersion());
+    }
+
+    @Test
+    void snapshotFallbackIsSentAtTheDeltasVersion() {
+        tracker.reset(board("    ", "    "));
+
+        GameStateDelta small = tracker.diff(board("X   ", "    "));
+        assertFalse(tracker.prefersSnapshot(small));
+        assertEquals(2, small.version());
+
+        GameStateDelta large = tracker.diff(board("OOOO", "O   "));
+        assertTrue(tracker.prefersSnapshot(large));
+        assertEquals(3, large.version());
+        assertEquals(3, tracker.getVersion());
+
+        // The fallback snapshot did not move the version, so the next delta follows on directly
+        GameStateDelta next = tracker.diff(board("OOOO", "OX  "));
+        assertEquals(4, next.version());
+        assertArrayEquals(new int[]{5}, next.cells());
+    }
+
+    @Test
+    void resizedBoardIsReportedChangedInEveryCell() {
+        tracker.reset(board("  ", "  "));
+
+        GameStateDelta delta = tracker.diff(board("   ", "   ", "  X"));
+
+        assertEquals(9, tracker.getCellCount());
+        assertEquals(9, delta.size());
+        assertEquals('X', delta.symbols()[8]);
+        assertTrue(tracker.prefersSnapshot(delta));
+        assertEquals(2, delta.version());
+        assertEquals(1, tracker.diff(board("   ", "  O", "  X")).size());
+    }
+
+    @Test
+    void firstDiffWithoutASnapshotCoversTheWholeBoard() {
+        GameStateDelta delta = tracker.diff(board("X ", " O"));
+
+        assertEquals(4, delta.size());
+        assertEquals(1, delta.version());
+        assertTrue(tracker.prefersSnapshot(delta));
+    }
+}
@@ -0,0 +1,131 @@
+package server.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsumerParkerTest {
+
+    /**
+     * Waits until a thread has parked, so an offer made afterwards has to wake it
+     */
+    private static void awaitParked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+            assertTrue(System.nanoTime() < deadline, "consumer never parked");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void offerWakesAParkedConsumer() throws InterruptedException {
+        MpscMailbox<String> mailbox = new MpscMailbox<>();
+        AtomicReference<String> received = new AtomicReference<>();
+        Thread consumer = Thread.ofPlatform().start(() -> {
+            try {
+                received.set(mailbox.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        awaitParked(consumer);
+        mailbox.offer("wake");
+        consumer.join(2000);
+
+        assertFalse(consumer.isAlive());
+        assertEquals("wake", received.get());
+    }
+
+    @Test
+    void offerWakesAParkedVirtualConsumer() throws InterruptedException {
+        MpscMailbox<String> mailbox = new MpscMailbox<>();
+        CountDownLatch received = new CountDownLatch(1);
+        Thread consumer = Thread.ofVirtual().start(() -> {
+            try {
+                if ("wake".equals(mailbox.poll(5, TimeUnit.SECONDS))) {
+                    received.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        awaitParked(consumer);
+        mailbox.offer("wake");
+
+        assertTrue(received.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void sharedParkerWakesTheConsumerForEitherMailbox() throws InterruptedException {
+        ConsumerParker parker = new ConsumerParker();
+        MpscMailbox<String> first = new MpscMailbox<>(parker);
+        MpscMailbox<String> second = new MpscMailbox<>(parker);
+        AtomicReference<String> received = new AtomicReference<>();
+        Thread consumer = Thread.ofPlatform().start(() -> {
+            try {
+                received.set(parker.await(() -> {
+                    String message = first.poll();
+                    return message != null ? message : second.poll();
+                }, -1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        awaitParked(consumer);
+        second.offer("second");
+        consumer.join(2000);
+
+        assertFalse(consumer.isAlive());
+        assertEquals("second", received.get());
+    }
+
+    @Test
+    void interruptStopsAParkedConsumer() throws InterruptedException {
+        MpscMailbox<String> mailbox = new MpscMailbox<>();
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread consumer = Thread.ofPlatform().start(() -> {
+            try {
+                mailbox.take();
+            } catch (InterruptedException e) {
+                thrown.set(e);
+            }
+        });
+
+        awaitParked(consumer);
+        consumer.interrupt();
+        consumer.join(2000);
+
+        assertFalse(consumer.isAlive());
+        assertInstanceOf(InterruptedException.class, thrown.get());
+    }
+
+    @Test
+    void noWakeUpIsLostWhenProducerAndConsumerRace() throws InterruptedException {
+        MpscMailbox<Integer> ping = new MpscMailbox<>();
+        MpscMailbox<Integer> pong = new MpscMailbox<>();
+        int rounds = 20_000;
+        Thread echo = Thread.ofPlatform().start(() -> {
+            try {
+                for (int i = 0; i < rounds; i++) {
+                    pong.offer(ping.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < rounds; i++) {
+            ping.offer(i);
+            assertEquals(Integer.valueOf(i), pong.poll(5, TimeUnit.SECONDS));
+        }
+        echo.join(2000);
+        assertFalse(echo.isAlive());
+    }
+}
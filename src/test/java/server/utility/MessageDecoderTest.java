@@ -0,0 +1,179 @@
+package server.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageDecoderTest {
+
+    private final InboundMessage message = new InboundMessage();
+
+    private static ByteBuffer frame(MessageType type, int... payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(WireFormat.LENGTH_PREFIX_SIZE + WireFormat.HEADER_SIZE + payload.length);
+        buffer.putShort((short) (WireFormat.HEADER_SIZE + payload.length));
+        buffer.put((byte) WireFormat.PROTOCOL_VERSION);
+        buffer.put((byte) type.ordinal());
+        for (int b : payload) {
+            buffer.put((byte) b);
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer json(String line) {
+        return ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void frameLengthWaitsForTheLengthPrefix() {
+        assertEquals(-1, MessageDecoder.frameLength(ByteBuffer.allocate(0)));
+        assertEquals(-1, MessageDecoder.frameLength(ByteBuffer.wrap(new byte[]{0})));
+    }
+
+    @Test
+    void frameLengthWaitsForThePartialFrame() {
+        ByteBuffer whole = frame(MessageType.MOVE_MADE, 2, 3, 4);
+        ByteBuffer partial = whole.duplicate().limit(whole.limit() - 1);
+
+        assertEquals(-1, MessageDecoder.frameLength(partial));
+        assertEquals(whole.limit(), MessageDecoder.frameLength(whole));
+    }
+
+    @Test
+    void frameLengthRejectsLengthsOutsideTheFrameLimits() {
+        ByteBuffer tooShort = ByteBuffer.allocate(4).putShort((short) (WireFormat.HEADER_SIZE - 1)).flip();
+        ByteBuffer tooLong = ByteBuffer.allocate(4).putShort((short) (WireFormat.MAX_FRAME_LENGTH + 1)).flip();
+
+        assertThrows(IllegalArgumentException.class, () -> MessageDecoder.frameLength(tooShort));
+        assertThrows(IllegalArgumentException.class, () -> MessageDecoder.frameLength(tooLong));
+    }
+
+    @Test
+    void decodesBackToBackFramesInPlace() {
+        ByteBuffer enqueue = frame(MessageType.ENQUEUE, GameType.Checkers.ordinal());
+        ByteBuffer move = frame(MessageType.MOVE_MADE, 2, 0, 127);
+        ByteBuffer buffer = ByteBuffer.allocate(enqueue.remaining() + move.remaining()).put(enqueue).put(move).flip();
+
+        MessageDecoder.decodeInto(buffer, message);
+        assertEquals(MessageType.ENQUEUE, message.getType());
+        assertEquals(GameType.Checkers, message.getGameType());
+        assertEquals(move.limit(), buffer.remaining());
+
+        MessageDecoder.decodeInto(buffer, message);
+        assertEquals(MessageType.MOVE_MADE, message.getType());
+        assertNull(message.getGameType());
+        assertEquals(2, message.getCoordinateCount());
+        assertEquals(0, message.getCoordinate(0));
+        assertEquals(127, message.getCoordinate(1));
+        assertEquals(PackedMove.of(0, 127), message.getPackedMove());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void skipsPayloadsTheServerDoesNotActOn() {
+        ByteBuffer buffer = frame(MessageType.GAME_WON, 0, 0, 0, 7);
+
+        MessageDecoder.decodeInto(buffer, message);
+
+        assertEquals(MessageType.GAME_WON, message.getType());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void truncatedFrameLeavesThePositionAtTheLimit() {
+        // Declares three coordinates but carries one
+        ByteBuffer buffer = frame(MessageType.MOVE_MADE, 3, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> MessageDecoder.decodeInto(buffer, message));
+        assertEquals(buffer.limit(), buffer.position());
+    }
+
+    @Test
+    void payloadOverrunningItsFrameSkipsToTheNextFrame() {
+        // The frame claims one payload byte, but the move's count reads into the next frame
+        ByteBuffer buffer = ByteBuffer.allocate(16)
+                .putShort((short) (WireFormat.HEADER_SIZE + 1))
+                .put((byte) WireFormat.PROTOCOL_VERSION)
+                .put((byte) MessageType.MOVE_MADE.ordinal())
+                .put((byte) 2)
+                .put(frame(MessageType.YOUR_TURN))
+                .flip();
+
+        assertThrows(IllegalArgumentException.class, () -> MessageDecoder.decodeInto(buffer, message));
+        assertEquals(5, buffer.position());
+
+        MessageDecoder.decodeInto(buffer, message);
+        assertEquals(MessageType.YOUR_TURN, message.getType());
+    }
+
+    @Test
+    void rejectsCoordinatesThatDoNotFitAPackedMove() {
+        ByteBuffer buffer = frame(MessageType.MOVE_MADE, 1, 0x80);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> MessageDecoder.decodeInto(buffer, message));
+        assertTrue(e.getMessage().contains("128"));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void rejectsUnsupportedVersionsAndUnknownTypes() {
+        ByteBuffer version = frame(MessageType.YOUR_TURN);
+        version.put(2, (byte) (WireFormat.PROTOCOL_VERSION + 1));
+        ByteBuffer type = frame(MessageType.YOUR_TURN);
+        type.put(3, (byte) MessageType.values().length);
+        ByteBuffer game = frame(MessageType.ENQUEUE, GameType.values().length);
+
+        assertThrows(IllegalArgumentException.class, () -> MessageDecoder.decodeInto(version, message));
+        assertThrows(IllegalArgumentException.class, () -> MessageDecoder.decodeInto(type, message));
+        assertThrows(IllegalArgumentException.class, () -> MessageDecoder.decodeInto(game, message));
+    }
+
+    @Test
+    void decodesJsonMovesAsAnArrayOrASingleCoordinate() {
+        MessageDecoder.decodeJsonInto(json("{\"type\":\"MOVE_MADE\",\"data\":[ 4 , 5 ]}"), message);
+        assertEquals(MessageType.MOVE_MADE, message.getType());
+        assertEquals(2, message.getCoordinateCount());
+        assertEquals(PackedMove.of(4, 5), message.getPackedMove());
+
+        MessageDecoder.decodeJsonInto(json("{\"data\":6,\"type\":\"MOVE_MADE\"}"), message);
+        assertEquals(1, message.getCoordinateCount());
+        assertEquals(6, message.getCoordinate(0));
+    }
+
+    @Test
+    void decodesJsonQueueRequestsAndSkipsUnknownKeys() {
+        ByteBuffer line = json(" { \"id\":{\"a\":[1,{\"b\":null}],\"c\":\"}\"} , \"type\":\"ENQUEUE\", \"data\":1, \"ok\":true } ");
+
+        MessageDecoder.decodeJsonInto(line, message);
+
+        assertEquals(MessageType.ENQUEUE, message.getType());
+        assertEquals(GameType.ConnectFour, message.getGameType());
+        assertEquals(0, message.getCoordinateCount());
+        assertFalse(line.hasRemaining());
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageDecoder.decodeJsonInto(json("{\"type\":\"NOT_A_TYPE\"}"), message));
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageDecoder.decodeJsonInto(json("{\"data\":1}"), message));
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageDecoder.decodeJsonInto(json("{\"type\":\"MOVE_MADE\""), message));
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageDecoder.decodeJsonInto(json("{\"type\":\"ENQUEUE\"} x"), message));
+    }
+
+    @Test
+    void rejectsJsonCoordinatesThatDoNotFitAPackedMove() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageDecoder.decodeJsonInto(json("{\"type\":\"MOVE_MADE\",\"data\":[1,128]}"), message));
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageDecoder.decodeJsonInto(json("{\"type\":\"MOVE_MADE\",\"data\":-1}"), message));
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageDecoder.decodeJsonInto(json("{\"type\":\"MOVE_MADE\",\"data\":[1,2,3,4,5]}"), message));
+    }
+}
@@ -0,0 +1,127 @@
+package server.utility;
+
+import org.junit.jupiter.api.Test;
+import server.game.GamePiece;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageEncoderTest {
+
+    private record Piece(char symbol) implements GamePiece {
+        @Override
+        public char getSymbol() {
+            return symbol;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return symbol == ' ';
+        }
+    }
+
+    private static String text(ByteBuffer... parts) {
+        StringBuilder text = new StringBuilder();
+        for (ByteBuffer part : parts) {
+            text.append(StandardCharsets.UTF_8.decode(part.duplicate()));
+        }
+        return text.toString();
+    }
+
+    private static ByteBuffer concat(ByteBuffer... parts) {
+        int length = 0;
+        for (ByteBuffer part : parts) {
+            length += part.remaining();
+        }
+        ByteBuffer whole = ByteBuffer.allocate(length);
+        for (ByteBuffer part : parts) {
+            whole.put(part.duplicate());
+        }
+        return whole.flip();
+    }
+
+    @Test
+    void encodesErrorsAsALengthPrefixedFrame() {
+        ByteBuffer out = ByteBuffer.allocate(64);
+        MessageEncoder.encodeBinary(new ThreadMessage<>(MessageType.ERROR, "Bad move"), out);
+        out.flip();
+
+        assertEquals(out.limit(), MessageDecoder.frameLength(out));
+        assertEquals(WireFormat.HEADER_SIZE + 2 + 8, out.getShort());
+        assertEquals(WireFormat.PROTOCOL_VERSION, out.get());
+        assertEquals(MessageType.ERROR.ordinal(), out.get());
+        assertEquals(8, out.getShort());
+        assertEquals("Bad move", StandardCharsets.UTF_8.decode(out).toString());
+    }
+
+    @Test
+    void encodesErrorsAsEscapedJson() {
+        String json = MessageEncoder.encodeJson(new ThreadMessage<>(MessageType.ERROR, "Say \"hi\"\n"));
+
+        assertEquals("{\"type\":\"ERROR\",\"data\":\"Say \\\"hi\\\"\\n\"}", json);
+    }
+
+    @Test
+    void queueRequestsRoundTripThroughTheDecoder() {
+        ByteBuffer out = ByteBuffer.allocate(16);
+        MessageEncoder.encodeBinary(new ThreadMessage<>(MessageType.DEQUEUE, GameType.TicTacToe), out);
+        InboundMessage binary = new InboundMessage();
+        MessageDecoder.decodeInto(out.flip(), binary);
+
+        String json = MessageEncoder.encodeJson(new ThreadMessage<>(MessageType.ENQUEUE, GameType.Checkers));
+        InboundMessage decoded = new InboundMessage();
+        MessageDecoder.decodeJsonInto(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)), decoded);
+
+        assertEquals(MessageType.DEQUEUE, binary.getType());
+        assertEquals(GameType.TicTacToe, binary.getGameType());
+        assertEquals(MessageType.ENQUEUE, decoded.getType());
+        assertEquals(GameType.Checkers, decoded.getGameType());
+    }
+
+    @Test
+    void rejectsDataThatDoesNotMatchTheType() {
+        ThreadMessage<Integer> message = new ThreadMessage<>(MessageType.ERROR, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> MessageEncoder.encodeBinary(message, ByteBuffer.allocate(16)));
+    }
+
+    @Test
+    void rejectsFramesLongerThanTheMaximum() {
+        String text = "x".repeat(WireFormat.MAX_FRAME_LENGTH);
+        ThreadMessage<String> message = new ThreadMessage<>(MessageType.ERROR, text);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageEncoder.encodeBinary(message, ByteBuffer.allocate(WireFormat.MAX_FRAME_LENGTH * 2)));
+    }
+
+    @Test
+    void notificationsAreCompleteWithoutASuffix() {
+        SharedFrame frame = ThreadMessage.notification(MessageType.GAME_PAUSED).getData();
+        ByteBuffer binary = frame.shared(WireFormat.BINARY);
+
+        assertSame(frame, ThreadMessage.notification(MessageType.GAME_PAUSED).getData());
+        assertEquals(binary.remaining(), MessageDecoder.frameLength(binary));
+        assertEquals("{\"type\":\"GAME_PAUSED\"}\n", text(frame.shared(WireFormat.JSON)));
+    }
+
+    @Test
+    void gameStateFrameIsCompletedByEachRecipientsSuffix() {
+        GamePiece[][] board = {
+                {new Piece('X'), new Piece(' ')},
+                {new Piece(' '), new Piece('O')}
+        };
+        SharedFrame frame = MessageEncoder.encodeGameState(board, 7);
+
+        ByteBuffer shared = frame.shared(WireFormat.BINARY);
+        assertEquals(-1, MessageDecoder.frameLength(shared));
+        ByteBuffer whole = concat(shared, frame.suffix(WireFormat.BINARY, 'O'));
+        assertEquals(whole.remaining(), MessageDecoder.frameLength(whole));
+        assertEquals('O', whole.get(whole.limit() - 1));
+
+        assertEquals("{\"type\":\"GAME_STATE_UPDATE\",\"data\":{\"version\":7,\"gameState\":[\"X \",\" O\"],"
+                        + "\"playerPiece\":\"\\\"\"}}\n",
+                text(frame.shared(WireFormat.JSON), frame.suffix(WireFormat.JSON, '"')));
+    }
+}
@@ -0,0 +1,88 @@
+package server.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscMailboxTest {
+
+    @Test
+    void keepsOrderAcrossChunks() {
+        MpscMailbox<Integer> mailbox = new MpscMailbox<>();
+        int count = MpscMailbox.CHUNK_SIZE * 3 + 5;
+        for (int i = 0; i < count; i++) {
+            mailbox.offer(i);
+        }
+        assertEquals(count, mailbox.size());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.valueOf(i), mailbox.poll());
+        }
+        assertNull(mailbox.poll());
+        assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    void consumerStopsAtTheEndOfAFullChunkUntilTheNextIsLinked() {
+        MpscMailbox<Integer> mailbox = new MpscMailbox<>();
+        for (int i = 0; i < MpscMailbox.CHUNK_SIZE; i++) {
+            mailbox.offer(i);
+        }
+        for (int i = 0; i < MpscMailbox.CHUNK_SIZE; i++) {
+            assertEquals(Integer.valueOf(i), mailbox.poll());
+        }
+        assertNull(mailbox.poll());
+
+        mailbox.offer(MpscMailbox.CHUNK_SIZE);
+        assertEquals(Integer.valueOf(MpscMailbox.CHUNK_SIZE), mailbox.poll());
+        assertNull(mailbox.poll());
+    }
+
+    @Test
+    void rejectsNullMessages() {
+        MpscMailbox<Object> mailbox = new MpscMailbox<>();
+
+        assertThrows(NullPointerException.class, () -> mailbox.offer(null));
+        assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    void timedPollReturnsNullWhenNothingArrives() throws InterruptedException {
+        MpscMailbox<Object> mailbox = new MpscMailbox<>();
+        long start = System.nanoTime();
+
+        assertNull(mailbox.poll(20, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    void deliversEveryMessageFromConcurrentProducersInPerProducerOrder() throws InterruptedException {
+        MpscMailbox<int[]> mailbox = new MpscMailbox<>();
+        int producers = 4;
+        int perProducer = MpscMailbox.CHUNK_SIZE * 20;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    mailbox.offer(new int[]{producer, i});
+                }
+            }));
+        }
+
+        int[] next = new int[producers];
+        for (int received = 0; received < producers * perProducer; received++) {
+            int[] message = mailbox.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals(next[message[0]]++, message[1]);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(mailbox.poll());
+    }
+}
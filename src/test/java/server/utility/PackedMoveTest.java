@@ -0,0 +1,84 @@
+package server.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedMoveTest {
+
+    private static int[] unpack(int packed) {
+        int[] coordinates = new int[PackedMove.count(packed)];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = PackedMove.coordinate(packed, i);
+        }
+        return coordinates;
+    }
+
+    @Test
+    void packsEachMoveShapeInOrder() {
+        assertArrayEquals(new int[]{6}, unpack(PackedMove.of(6)));
+        assertArrayEquals(new int[]{2, 0}, unpack(PackedMove.of(2, 0)));
+        assertArrayEquals(new int[]{5, 2, 4, 3}, unpack(PackedMove.of(5, 2, 4, 3)));
+    }
+
+    @Test
+    void packsTheFullCoordinateRange() {
+        int packed = PackedMove.of(0, PackedMove.MAX_COORDINATE, PackedMove.MAX_COORDINATE, 0);
+
+        assertTrue(PackedMove.isValid(packed));
+        assertTrue(packed > 0);
+        assertArrayEquals(new int[]{0, 127, 127, 0}, unpack(packed));
+    }
+
+    @Test
+    void appendBuildsTheSameMoveAsOf() {
+        int packed = 0;
+        assertEquals(0, PackedMove.count(packed));
+
+        packed = PackedMove.append(packed, 1);
+        packed = PackedMove.append(packed, 2);
+
+        assertEquals(PackedMove.of(1, 2), packed);
+    }
+
+    @Test
+    void coordinatesThatDoNotFitAreInvalid() {
+        assertEquals(PackedMove.INVALID, PackedMove.of(PackedMove.MAX_COORDINATE + 1));
+        assertEquals(PackedMove.INVALID, PackedMove.of(-1));
+        assertEquals(PackedMove.INVALID, PackedMove.of(0, Integer.MAX_VALUE));
+        assertEquals(PackedMove.INVALID, PackedMove.of(1, 2, 3, 256));
+        assertFalse(PackedMove.isValid(PackedMove.of(128)));
+    }
+
+    @Test
+    void moveWithTooManyCoordinatesIsInvalid() {
+        int full = PackedMove.of(1, 2, 3, 4);
+
+        assertEquals(PackedMove.INVALID, PackedMove.append(full, 5));
+    }
+
+    @Test
+    void invalidMoveStaysInvalidAndHasNoCoordinates() {
+        assertEquals(PackedMove.INVALID, PackedMove.append(PackedMove.INVALID, 1));
+        assertEquals(0, PackedMove.count(PackedMove.INVALID));
+        assertThrows(IndexOutOfBoundsException.class, () -> PackedMove.coordinate(PackedMove.INVALID, 0));
+    }
+
+    @Test
+    void coordinatePastTheCountIsOutOfBounds() {
+        int packed = PackedMove.of(3, 4);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> PackedMove.coordinate(packed, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> PackedMove.coordinate(packed, -1));
+    }
+
+    @Test
+    void packsBotMoveData() {
+        assertEquals(PackedMove.of(3), PackedMove.fromData(3));
+        assertEquals(PackedMove.of(1, 2), PackedMove.fromData(new int[]{1, 2}));
+        assertEquals(0, PackedMove.fromData(new int[0]));
+        assertEquals(PackedMove.INVALID, PackedMove.fromData(new int[]{1, 2, 3, 4, 5}));
+        assertEquals(PackedMove.INVALID, PackedMove.fromData(new int[]{200}));
+        assertThrows(IllegalArgumentException.class, () -> PackedMove.fromData("3"));
+    }
+}
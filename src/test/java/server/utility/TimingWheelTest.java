@@ -0,0 +1,96 @@
+package server.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    // Four buckets of 5ms each, so anything past 20ms waits extra rounds
+    private final TimingWheel wheel = new TimingWheel(5, 4);
+
+    @Test
+    void runsTaskNoEarlierThanItsDelay() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        wheel.schedule(ran::countDown, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(60));
+    }
+
+    @Test
+    void cancelledTaskNeverRuns() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        TimingWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+        wheel.schedule(later::countDown, 80, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void cancelAfterRunningReportsFalse() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        TimingWheel.Timeout timeout = wheel.schedule(ran::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(2, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+        assertFalse(timeout.isCancelled());
+    }
+
+    @Test
+    void reschedulingReplacesTheEarlierDeadline() throws InterruptedException {
+        AtomicInteger original = new AtomicInteger();
+        CountDownLatch sooner = new CountDownLatch(1);
+        CountDownLatch later = new CountDownLatch(1);
+
+        TimingWheel.Timeout first = wheel.schedule(original::incrementAndGet, 40, TimeUnit.MILLISECONDS);
+        // Let the first timeout reach its bucket before it is replaced
+        Thread.sleep(15);
+        first.cancel();
+        wheel.schedule(sooner::countDown, 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(later::countDown, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(sooner.await(2, TimeUnit.SECONDS));
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertEquals(0, original.get());
+    }
+
+    @Test
+    void cancellingOneTimeoutLeavesItsBucketNeighbours() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(2);
+        AtomicInteger cancelledRuns = new AtomicInteger();
+
+        // Same delay, so all three share a bucket and the cancelled one sits in the middle
+        wheel.schedule(ran::countDown, 30, TimeUnit.MILLISECONDS);
+        TimingWheel.Timeout middle = wheel.schedule(cancelledRuns::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        wheel.schedule(ran::countDown, 30, TimeUnit.MILLISECONDS);
+        Thread.sleep(10);
+        middle.cancel();
+
+        assertTrue(ran.await(2, TimeUnit.SECONDS));
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheWheel() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        wheel.schedule(() -> { throw new IllegalStateException("expected"); }, 5, TimeUnit.MILLISECONDS);
+        wheel.schedule(ran::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(2, TimeUnit.SECONDS));
+    }
+}